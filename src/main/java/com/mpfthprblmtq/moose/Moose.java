@@ -14,6 +14,10 @@ import com.mpfthprblmtq.commons.logger.Logger;
 import com.mpfthprblmtq.moose.controllers.SettingsController;
 import com.mpfthprblmtq.moose.controllers.SongController;
 import com.mpfthprblmtq.moose.objects.Settings;
+import com.mpfthprblmtq.moose.services.AuditIndexService;
+import com.mpfthprblmtq.moose.services.AuditSessionService;
+import com.mpfthprblmtq.moose.services.TagCacheService;
+import com.mpfthprblmtq.moose.utilities.ArtworkStore;
 import com.mpfthprblmtq.moose.views.modals.AuditFrame;
 import com.mpfthprblmtq.moose.views.Frame;
 import com.mpfthprblmtq.moose.views.modals.SettingsFrame;
@@ -42,6 +46,14 @@ public class Moose {
     @Getter
     public static SettingsController settingsController;
 
+    // services
+    @Getter
+    public static TagCacheService tagCacheService;
+    @Getter
+    public static AuditIndexService auditIndexService;
+    @Getter
+    public static AuditSessionService auditSessionService;
+
     /**
      * Entry point for the app, launches the main Frame
      * @param args, the entry arguments
@@ -75,6 +87,22 @@ public class Moose {
         // initially load the settings
         settingsController.readSettingsFile();
 
+        // load the tag cache from the support directory, and write it back out when the app closes
+        tagCacheService = new TagCacheService(getSettings().getApplicationSupportLocation());
+        tagCacheService.readCacheFile();
+        Runtime.getRuntime().addShutdownHook(new Thread(tagCacheService::writeCacheFile));
+
+        // same for the audit index, so unchanged albums don't need to be checked again
+        auditIndexService = new AuditIndexService(getSettings().getApplicationSupportLocation());
+        auditIndexService.readIndexFile();
+        Runtime.getRuntime().addShutdownHook(new Thread(auditIndexService::writeIndexFile));
+
+        // progress of an audit in progress, read when an audit is started
+        auditSessionService = new AuditSessionService(getSettings().getApplicationSupportLocation());
+
+        // let the artwork store spill covers to the support directory once it gets too big
+        ArtworkStore.setSpillDirectory(new File(getSettings().getApplicationSupportLocation() + "artwork/"));
+
         // create the frame now that we have our settings
         settingsFrame = new SettingsFrame();
     }
@@ -12,8 +12,13 @@ package com.mpfthprblmtq.moose.controllers;
 // imports
 import com.mpfthprblmtq.commons.utils.StringUtils;
 import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.AuditAlbum;
+import com.mpfthprblmtq.moose.objects.Song;
+import com.mpfthprblmtq.moose.services.AuditPrefetchService;
 import com.mpfthprblmtq.moose.services.AuditService;
+import com.mpfthprblmtq.moose.services.SongService;
 import com.mpfthprblmtq.moose.utilities.AuditCleanupUtils;
+import com.mpfthprblmtq.moose.utilities.ReportWriter;
 import com.mpfthprblmtq.moose.utilities.viewUtils.DialogUtils;
 import com.mpfthprblmtq.moose.views.modals.AuditFrame;
 import com.mpfthprblmtq.moose.views.Frame;
@@ -21,9 +26,13 @@ import lombok.Data;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static com.mpfthprblmtq.moose.utilities.Constants.*;
@@ -32,8 +41,9 @@ import static com.mpfthprblmtq.moose.utilities.Constants.*;
 @Data
 public class AuditController {
 
-    // service
+    // services
     AuditService auditService;
+    AuditPrefetchService auditPrefetchService;
 
     // frames
     Frame frame;
@@ -57,6 +67,9 @@ public class AuditController {
     // list of albums for the audit
     List<File> albums = new ArrayList<>();
 
+    // check results of each album from the analysis, keyed by the album's path
+    Map<String, List<Boolean>> checkResults = new HashMap<>();
+
     // lists for results
     List<List<String>> filePathList = new ArrayList<>(Arrays.asList(
             new ArrayList<>(),      // id3
@@ -71,13 +84,16 @@ public class AuditController {
         this.auditFrame = Moose.getAuditFrame();
         this.songController = Moose.getSongController();
         this.auditService = new AuditService();
+        this.auditPrefetchService = new AuditPrefetchService(new SongService());
     }
 
     /**
      * Main driver method for the analysis function.  Warns the user of experimental functionality, imports all the
-     * albums from the user's library directory, and analyzes each one.  All while updating the UI.
+     * albums from the user's library directory, and analyzes each one that changed since the last analysis (or all of
+     * them for a full rescan).  All while updating the UI.
+     * @param fullRescan if every album should be checked again, even the unchanged ones
      */
-    public void analyze() {
+    public void analyze(boolean fullRescan) {
 
         // warn the user that this is experimental
         // TODO remove this once it's not experimental anymore
@@ -91,30 +107,38 @@ public class AuditController {
 
         // clean up to start and update graphics
         AuditCleanupUtils.clearLists(filePathList);
+        checkResults.clear();
         auditFrame.setAuditLoading(true);
 
-        // import all albums into a list of directories
-        albums = auditService.importAlbums(folder);
+        // import all albums from a single walk of the folder, then keep the list of directories for the audit
+        List<AuditAlbum> auditAlbums = auditService.importAlbums(folder);
+        albums = auditAlbums.stream().map(AuditAlbum::getDirectory).collect(Collectors.toList());
 
-        // iterate through each album (directory) and check all issues while updating graphics
+        // check all the albums on the audit pool while updating graphics
         auditFrame.setAuditCurrentlyScanningLabelHorizontalAlignment(SwingConstants.TRAILING);
-        for (int i = 0; i < albums.size(); i++) {
-            File album = albums.get(i);
+        List<List<Boolean>> results = auditService.checkAlbums(auditAlbums, fullRescan, (checked, album) -> {
             auditFrame.updateAuditCurrentlyScanningLabel(   // update currently scanning label with file path
-                    StringUtils.truncateWithEllipsesTrailing(album.getPath(), 56));
-            // check for each type of issue
-            if (auditService.id3TagsHaveErrors(album)) {
-                filePathList.get(ID3).add(album.getPath());
+                    StringUtils.truncateWithEllipsesTrailing(album.getDirectory().getPath(), 56));
+            auditFrame.updateAuditProgressBar(AuditCleanupUtils.formatPercentage(checked, auditAlbums.size()));
+        });
+
+        // add the albums with issues to the lists, in album order
+        for (int i = 0; i < auditAlbums.size(); i++) {
+            List<Boolean> result = results.get(i);
+            if (result == null) {
+                continue;
             }
-            if (auditService.filesHaveErrors(album)) {
-                filePathList.get(FILENAMES).add(album.getPath());
+            String path = auditAlbums.get(i).getDirectory().getPath();
+            checkResults.put(path, result);
+            if (result.get(ID3)) {
+                filePathList.get(ID3).add(path);
             }
-            if (auditService.coverHasErrors(album)) {
-                filePathList.get(COVER).add(album.getPath());
+            if (result.get(FILENAMES)) {
+                filePathList.get(FILENAMES).add(path);
+            }
+            if (result.get(COVER)) {
+                filePathList.get(COVER).add(path);
             }
-
-            // update progress bar
-            auditFrame.updateAuditProgressBar(AuditCleanupUtils.formatPercentage(i, albums.size()));
         }
 
         // update graphics with results
@@ -123,14 +147,25 @@ public class AuditController {
         auditFrame.updateAuditCurrentlyScanningLabel(StringUtils.formatNumber(albums.size())
                 + " albums successfully scanned!");
         auditFrame.setAuditResults(auditService.getResultsFromFilePathList(filePathList));
+
+        // save off the tag cache and audit index so the next analysis doesn't need to check everything again
+        Moose.getTagCacheService().writeCacheFile();
+        Moose.getAuditIndexService().removeMissing(folder, auditAlbums);
+        Moose.getAuditIndexService().writeIndexFile();
     }
 
     /**
-     * Returns the detail list for showing on the View Results panel
-     * @return the detailed list of issues from audit
+     * Writes the detail list out to a report in the application support directory, for showing on the View Results
+     * panel or opening in another program
+     * @param format the format to write the report in
+     * @return the report file
+     * @throws IOException if the report couldn't be written
      */
-    public String getResults() {
-        return auditService.exportAuditResultsToString(filePathList);
+    public File writeResults(ReportWriter.Format format) throws IOException {
+        File report = new File(Moose.getSettings().getApplicationSupportLocation()
+                + "reports/auditResults." + format.getExtension());
+        ReportWriter.writeReport(report, format, auditService.getResultSections(filePathList));
+        return report;
     }
 
     /**
@@ -182,13 +217,14 @@ public class AuditController {
     }
 
     /**
-     * Start method for when user selects to start a new audit.  Clears any residual done files left over from previous
-     * audits, and opens a new audit window at 0.
+     * Start method for when user selects to start a new audit.  Starts a new audit session, replacing whatever was left
+     * over from previous audits, and opens a new audit window at 0.
      */
     public void newAudit() {
         this.currentIndex = 0;
-        auditService.clearDoneFiles(albums);    // clear any residual files
-        auditService.openAuditWindow(albums, currentIndex);    // start at zero
+        auditService.startAuditSession(albums);    // clear any residual progress
+        auditPrefetchService.clear();
+        openAuditWindow(true);    // start at zero
     }
 
     /**
@@ -197,7 +233,31 @@ public class AuditController {
      */
     public void continueAudit() {
         this.currentIndex = auditService.getNextAlbum(albums);  // get where we left off
-        auditService.openAuditWindow(albums, currentIndex);    // open the next window
+        if (currentIndex == -1) {
+            // everything's already done
+            stopAudit(true);
+            return;
+        }
+        auditPrefetchService.clear();
+        openAuditWindow(true);    // open the next window
+    }
+
+    /**
+     * Shows the current album in the audit, using its results from the analysis if we have them and its songs if they
+     * were read ahead, then starts reading ahead the albums after it
+     * @param readAhead if the next albums should be read ahead, false when going backwards
+     */
+    private void openAuditWindow(boolean readAhead) {
+        File album = albums.get(currentIndex);
+        List<Boolean> results = checkResults.computeIfAbsent(album.getPath(), path -> auditService.getCheckResults(album));
+        Map<File, Song> alreadyRead = auditPrefetchService.take(album);
+        auditService.openAuditWindow(albums, currentIndex, results, alreadyRead != null ? alreadyRead : new HashMap<>());
+
+        if (readAhead) {
+            auditPrefetchService.prefetch(albums.subList(currentIndex + 1, albums.size()));
+        } else {
+            auditPrefetchService.clear();
+        }
     }
 
     /**
@@ -213,8 +273,10 @@ public class AuditController {
         this.frame = Moose.getFrame();
         this.songController = Moose.getSongController();
 
-        // save all the tracks in the current screen so the user doesn't have to manually do it
+        // save all the tracks in the current screen so the user doesn't have to manually do it, then forget the
+        // album's results since the save could have changed them
         songController.saveTracks(IntStream.range(0, frame.table.getRowCount()).toArray());
+        checkResults.remove(albums.get(currentIndex).getPath());
 
         // check if the audit is done
         if (currentIndex + 2 == albums.size()) {
@@ -226,7 +288,7 @@ public class AuditController {
         } else {
             // move on with the next album in the list
             currentIndex++;
-            auditService.openAuditWindow(albums, currentIndex);
+            openAuditWindow(true);
         }
     }
 
@@ -239,14 +301,16 @@ public class AuditController {
             auditService.setDone(albums.get(currentIndex));
         }
 
-        // save all the tracks in the current screen so the user doesn't have to manually do it
+        // save all the tracks in the current screen so the user doesn't have to manually do it, then forget the
+        // album's results since the save could have changed them
         Moose.getFrame().songController.saveTracks(IntStream.range(0, frame.table.getRowCount()).toArray());
+        checkResults.remove(albums.get(currentIndex).getPath());
 
         // prevent a negative index
         if (currentIndex >= 0) {
             // move on with the previous album in the list
             currentIndex--;
-            auditService.openAuditWindow(albums, currentIndex);
+            openAuditWindow(false);
         }
     }
 
@@ -255,21 +319,20 @@ public class AuditController {
      * @param finished a boolean to determine if we "finished" an audit or if we just stopped it
      */
     public void stopAudit(boolean finished) {
-        // reset the audit frame
+        // reset the audit frame and drop anything read ahead
         auditFrame.resetAuditFrame();
+        auditPrefetchService.clear();
 
         // clear fields
         albums.clear();
         currentIndex = 0;
 
-        // launch a blank frame
-        Moose.getFrame().dispose();
-        Moose.frame = new Frame();
-        Moose.launchFrame();
+        // clear out the frame
+        Moose.getFrame().clearTable();
 
         if (finished) {
-            // clear done files
-            auditService.clearDoneFiles(albums);
+            // clear the audit session
+            auditService.clearAuditSession();
             // show that the audit is done
             DialogUtils.showMessageDialog(null, "Audit is complete!", "Audit Completed", JOptionPane.INFORMATION_MESSAGE);
         }
@@ -330,6 +393,8 @@ public class AuditController {
         }
         albums.set(currentIndex, directory);
         List<Boolean> results = auditService.getCheckResults(directory);
+        checkResults.remove(this.currentDirectory);
+        checkResults.put(directory.getPath(), results);
         setFields(results.get(ID3), results.get(FILENAMES), results.get(COVER), directory.getPath());
         auditFrame.refreshAuditFrameFromAudit(results, directory.getPath());
 
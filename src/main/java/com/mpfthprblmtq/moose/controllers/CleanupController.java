@@ -10,16 +10,17 @@
 package com.mpfthprblmtq.moose.controllers;
 
 // imports
-import com.mpfthprblmtq.commons.utils.FileUtils;
 import com.mpfthprblmtq.commons.utils.StringUtils;
 import com.mpfthprblmtq.moose.Moose;
 import com.mpfthprblmtq.moose.services.CleanupService;
 import com.mpfthprblmtq.moose.utilities.AuditCleanupUtils;
+import com.mpfthprblmtq.moose.utilities.ReportWriter;
 import com.mpfthprblmtq.moose.views.modals.AuditFrame;
 import lombok.Data;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -60,49 +61,50 @@ public class CleanupController {
 
     /**
      * Main driver method for the analysis function.  Scans all files in the folder chosen (either user's library
-     * location or the folder chosen), and tabulates how many of each file there is.  All while updating the UI.
+     * location or the folder chosen), and tabulates how many of each file there is and how much space they take up.
+     * All while updating the UI.
      */
     public void analyze() {
         // update graphics to start
         auditFrame.setCleanupLoading(true);
+        auditFrame.setCleanupCurrentlyScanningLabelHorizontalAlignment(SwingConstants.LEADING);
 
-        // set fields to 0 to start fresh
-        cleanupService.setMp3Count(0);
-        cleanupService.setCoverCount(0);
-
-        // create the list of all files, so we can iterate through them
-        List<File> cleanupFiles = new ArrayList<>();
-        FileUtils.listFiles(folder, cleanupFiles);
-
-        // do the analysis
+        // do the analysis, walking the top level folders at the same time
         AuditCleanupUtils.clearLists(filePathList);
-        for (int i = 0; i < cleanupFiles.size(); i++) {
-            cleanupService.analyzeFile(cleanupFiles.get(i), filePathList);
-            auditFrame.updateCleanupProgressBar(AuditCleanupUtils.formatPercentage(i, cleanupFiles.size()));
-        }
+        long scanned = cleanupService.analyze(filePathList, true, (count, percentage) -> {
+            auditFrame.updateCleanupCurrentlyScanningLabel(StringUtils.formatNumber(count.intValue()) + " files scanned...");
+            auditFrame.updateCleanupProgressBar(percentage);
+        });
 
         // update graphics again
         auditFrame.setCleanupLoading(false);
-        auditFrame.setCleanupResults(cleanupService.getAnalysisResults(filePathList));
-        auditFrame.setCleanupCurrentlyScanningLabelHorizontalAlignment(SwingConstants.LEADING);
-        auditFrame.updateCleanupCurrentlyScanningLabel(StringUtils.formatNumber(cleanupFiles.size())
+        auditFrame.setCleanupResults(cleanupService.getAnalysisResults());
+        auditFrame.updateCleanupCurrentlyScanningLabel(StringUtils.formatNumber((int) scanned)
                 + " files successfully scanned!");
     }
 
     /**
-     * Returns the detail list for showing on the View Results panel
-     * @return the detailed list of file types
+     * Writes the detail list out to a report in the application support directory, for showing on the View Results
+     * panel or opening in another program
+     * @param format the format to write the report in
+     * @return the report file
+     * @throws IOException if the report couldn't be written
      */
-    public String getResults() {
-        return cleanupService.exportCleanupResultsToString(filePathList);
+    public File writeResults(ReportWriter.Format format) throws IOException {
+        File report = new File(Moose.getSettings().getApplicationSupportLocation()
+                + "reports/cleanupResults." + format.getExtension());
+        ReportWriter.writeReport(report, format, cleanupService.getResultSections(filePathList));
+        return report;
     }
 
     /**
      * Deletes all files in the filePathList
+     * @param dryRun if we should only count the files and their size instead of deleting them
      */
-    public void deleteAll() {
-        cleanupService.deleteAll(filePathList);
-        analyze();
+    public void deleteAll(boolean dryRun) {
+        startDeletion();
+        cleanupService.deleteAll(filePathList, dryRun, (count, percentage) -> updateDeletionProgress(count, percentage, dryRun));
+        finishDeletion(dryRun);
     }
 
     /**
@@ -115,6 +117,7 @@ public class CleanupController {
      * @param windows a boolean to determine if we're deleting windows-specific files (folder.*, thumbs.db, etc.)
      * @param everythingElse a boolean to determine if we're deleting all other random files
      * @param customExtension a string as a certain file extension to delete
+     * @param dryRun if we should only count the files and their size instead of deleting them
      */
     public void deleteSelected(
             boolean mp3asd,
@@ -124,9 +127,11 @@ public class CleanupController {
             boolean images,
             boolean windows,
             boolean everythingElse,
-            String customExtension) {
+            String customExtension,
+            boolean dryRun) {
 
         // delete
+        startDeletion();
         cleanupService.deleteSelected(
                 filePathList,
                 mp3asd,
@@ -136,8 +141,42 @@ public class CleanupController {
                 images,
                 windows,
                 everythingElse,
-                customExtension);
-        analyze();
+                customExtension,
+                dryRun,
+                (count, percentage) -> updateDeletionProgress(count, percentage, dryRun));
+        finishDeletion(dryRun);
+    }
+
+    /**
+     * Updates graphics before a deletion
+     */
+    private void startDeletion() {
+        auditFrame.setCleanupLoading(true);
+        auditFrame.setCleanupCurrentlyScanningLabelHorizontalAlignment(SwingConstants.LEADING);
+        auditFrame.updateCleanupProgressBar(0);
+    }
+
+    /**
+     * Updates the progress of a deletion
+     * @param count the number of files done so far
+     * @param percentage the percentage of files done
+     * @param dryRun if it's a dry run
+     */
+    private void updateDeletionProgress(long count, int percentage, boolean dryRun) {
+        auditFrame.updateCleanupCurrentlyScanningLabel(StringUtils.formatNumber((int) count)
+                + (dryRun ? " files checked..." : " files deleted..."));
+        auditFrame.updateCleanupProgressBar(percentage);
+    }
+
+    /**
+     * Updates graphics after a deletion, and analyzes again if anything was actually deleted so the counts are right
+     * @param dryRun if it was a dry run
+     */
+    private void finishDeletion(boolean dryRun) {
+        auditFrame.setCleanupLoading(false);
+        if (!dryRun) {
+            analyze();
+        }
     }
 
     /**
@@ -18,21 +18,27 @@ import com.mpfthprblmtq.moose.objects.Song;
 import com.mpfthprblmtq.moose.objects.api.imageSearch.ImageSearchQuery;
 import com.mpfthprblmtq.moose.services.AutoTaggingService;
 import com.mpfthprblmtq.moose.services.FilenameFormatterService;
+import com.mpfthprblmtq.moose.services.ImportService;
+import com.mpfthprblmtq.moose.services.SaveService;
 import com.mpfthprblmtq.moose.services.SongService;
 import com.mpfthprblmtq.moose.utilities.Constants;
 import com.mpfthprblmtq.moose.utilities.ImageUtils;
 import com.mpfthprblmtq.moose.utilities.MP3FileUtils;
 import com.mpfthprblmtq.moose.utilities.viewUtils.DialogUtils;
+import com.mpfthprblmtq.moose.utilities.viewUtils.SongTableModel;
 import com.mpfthprblmtq.moose.utilities.viewUtils.ViewUtils;
 import lombok.Data;
 
 import javax.swing.*;
 import java.io.File;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.mpfthprblmtq.commons.utils.FileUtils.launchJFileChooser;
@@ -45,13 +51,16 @@ public class SongController {
     SongService songService;
     FilenameFormatterService filenameFormatterService;
     AutoTaggingService autoTaggingService;
+    ImportService importService;
+    SaveService saveService;
 
     // logger object
     Logger logger = Moose.getLogger();
 
     // lists/maps
     HashMap<Integer, Song> songs = new HashMap<>(); // hashmap to contain Song objects
-    List<Integer> edited_songs = new ArrayList<>(); // arraylist to contain indices of edited songs to save
+    HashMap<String, Integer> pathIndices = new HashMap<>(); // hashmap of file paths in the table to song indices
+    Set<Integer> edited_songs = new HashSet<>(); // set to contain indices of edited songs to save
 
     // field to check if user has unsaved changes
     boolean hasUnsavedChanges = false;
@@ -63,6 +72,8 @@ public class SongController {
         songService = new SongService();
         autoTaggingService = new AutoTaggingService(this);
         filenameFormatterService = new FilenameFormatterService(this);
+        importService = new ImportService(songService);
+        saveService = new SaveService(songService);
     }
 
     /**
@@ -80,7 +91,7 @@ public class SongController {
      */
     public void setNewFile(int index, File newFile) {
         songs.get(index).setNewFile(newFile);
-        songEdited(index);
+        songEdited(index, Song.FILE_NAME);
     }
 
     /**
@@ -90,7 +101,7 @@ public class SongController {
      */
     public void setTitle(int index, String title) {
         songs.get(index).setTitle(title);
-        songEdited(index);
+        songEdited(index, Song.TITLE);
     }
 
     /**
@@ -100,7 +111,7 @@ public class SongController {
      */
     public void setArtist(int index, String artist) {
         songs.get(index).setArtist(artist);
-        songEdited(index);
+        songEdited(index, Song.ARTIST);
     }
 
     /**
@@ -110,7 +121,7 @@ public class SongController {
      */
     public void setAlbum(int index, String album) {
         songs.get(index).setAlbum(album);
-        songEdited(index);
+        songEdited(index, Song.ALBUM);
     }
 
     /**
@@ -120,7 +131,7 @@ public class SongController {
      */
     public void setAlbumArtist(int index, String albumArtist) {
         songs.get(index).setAlbumArtist(albumArtist);
-        songEdited(index);
+        songEdited(index, Song.ALBUM_ARTIST);
     }
 
     /**
@@ -130,7 +141,7 @@ public class SongController {
      */
     public void setGenre(int index, String genre) {
         songs.get(index).setGenre(genre);
-        songEdited(index);
+        songEdited(index, Song.GENRE);
     }
 
     /**
@@ -140,7 +151,7 @@ public class SongController {
      */
     public void setYear(int index, String year) {
         songs.get(index).setYear(year);
-        songEdited(index);
+        songEdited(index, Song.YEAR);
     }
 
     /**
@@ -150,7 +161,7 @@ public class SongController {
      */
     public void setTrack(int index, String track) {
         songs.get(index).setTrack(track);
-        songEdited(index);
+        songEdited(index, Song.TRACK);
     }
 
     /**
@@ -160,7 +171,7 @@ public class SongController {
      */
     public void setTotalTracks(int index, String totalTracks) {
         songs.get(index).setTotalTracks(totalTracks);
-        songEdited(index);
+        songEdited(index, Song.TRACK);
     }
 
     /**
@@ -170,7 +181,7 @@ public class SongController {
      */
     public void setDisk(int index, String disk) {
         songs.get(index).setDisk(disk);
-        songEdited(index);
+        songEdited(index, Song.DISK);
     }
 
     /**
@@ -180,7 +191,7 @@ public class SongController {
      */
     public void setTotalDisks(int index, String totalDisks) {
         songs.get(index).setTotalDisks(totalDisks);
-        songEdited(index);
+        songEdited(index, Song.DISK);
     }
 
     /**
@@ -190,7 +201,7 @@ public class SongController {
      */
     public void setAlbumImage(int index, byte[] bytes) {
         songs.get(index).setArtwork_bytes(bytes);
-        songEdited(index);
+        songEdited(index, Song.ARTWORK);
     }
 
     /**
@@ -200,16 +211,17 @@ public class SongController {
      */
     public void setComment(int index, String comment) {
         songs.get(index).setComment(comment);
-        songEdited(index);
+        songEdited(index, Song.COMMENT);
     }
 
     /**
-     * Adds the song index to edited_songs to save, and updates the row icon
+     * Marks the field as edited on the song, adds the song index to edited_songs to save, and updates the row icon
      * @param index the index to add to edited_songs
+     * @param field the flag of the field that was edited
      */
-    public void songEdited(int index) {
-        if (!edited_songs.contains(index)) {
-            edited_songs.add(index);
+    public void songEdited(int index, int field) {
+        songs.get(index).fieldEdited(field);
+        if (edited_songs.add(index)) {
             Moose.getFrame().setRowIcon(Constants.EDITED, getRow(index));
             this.hasUnsavedChanges = true;
         }
@@ -217,19 +229,56 @@ public class SongController {
     }
     // </editor-fold>
 
+    /**
+     * Clears all the songs out of the controller, so the table can be reloaded without making a new controller
+     */
+    public void clear() {
+        songs.clear();
+        pathIndices.clear();
+        edited_songs.clear();
+        hasUnsavedChanges = false;
+    }
+
     /**
      * Adds a song to the song map with the next available index
      * @param s the song to add
      */
     public void addSong(Song s) {
-        Collection<Song> existingSongs = getSongs().values();
-        for (Song song : existingSongs) {
-            if (song.equals(s)) {
-                return;
-            }
+        if (isInTable(s.getFile())) {
+            return;
         }
         s.setIndex(getSongs().size());
         songs.put(s.getIndex(), s);
+        pathIndices.put(s.getFile().getPath(), s.getIndex());
+    }
+
+    /**
+     * Checks if a file is already in the table
+     * @param file the file to check
+     * @return the result of the check
+     */
+    public boolean isInTable(File file) {
+        return pathIndices.containsKey(file.getPath());
+    }
+
+    /**
+     * Removes a file from the table's path index when its row is removed, so it can be imported again
+     * @param file the file to remove
+     */
+    public void removeFromTable(File file) {
+        pathIndices.remove(file.getPath());
+    }
+
+    /**
+     * Updates the path index when a song's file is renamed or moved
+     * @param oldFile the file before the rename
+     * @param newFile the file after the rename
+     */
+    public void fileRenamed(File oldFile, File newFile) {
+        Integer index = pathIndices.remove(oldFile.getPath());
+        if (index != null) {
+            pathIndices.put(newFile.getPath(), index);
+        }
     }
 
     /**
@@ -248,12 +297,8 @@ public class SongController {
      * @return the row where the index matches
      */
     public int getRow(int index) {
-        for (int i = 0; i < Moose.getFrame().getTable().getRowCount(); i++) {
-            if (getIndex(i) == index) {
-                return i;
-            }
-        }
-        return -1;
+        int modelRow = getTableModel().getModelRow(index);
+        return modelRow != -1 ? Moose.getFrame().getTable().convertRowIndexToView(modelRow) : -1;
     }
 
     /**
@@ -262,46 +307,50 @@ public class SongController {
      *          - Integer: the row on the table
      *          - Song: a song object with data to compare with
      *          - List<File>: a collection of two files, first index being the new file, second being the old file
+     *          - File: the file of a song in the table
      */
     @SuppressWarnings("unchecked")  // for the cast to List<File>
     public <T> int getIndex(T t) {
         if (t instanceof Integer) {
             int row = (Integer) t;
             row = Moose.getFrame().getTable().convertRowIndexToModel(row);
-            return Integer.parseInt(Moose.getFrame().getTable().getModel().getValueAt(row, 12).toString());
+            return getTableModel().getIndex(row);
 
         } else if (t instanceof Song) {
             Song song = (Song) t;
-            for (Integer index : getSongs().keySet()) {
-                Song songInMap = getSongs().get(index);
-                if (song.equals(songInMap, false)) {
-                    return index;
-                }
+            Integer index = pathIndices.get(song.getFile().getPath());
+            if (index != null && song.equals(getSongs().get(index), false)) {
+                return index;
             }
 
         } else if (t instanceof List) { // TODO remove this type of index get, there has to be a better way
             List<File> files = (List<File>) t;
             File newFile = files.get(0);
             File oldFile = files.get(1);
-            for (Integer index : getSongs().keySet()) {
-                Song songInMap = getSongs().get(index);
-                if (songInMap.getFile().getPath().equals(oldFile.getPath())
-                        || songInMap.getNewFile().getPath().equals(newFile.getPath())) {
-                    return index;
+            Integer index = pathIndices.get(oldFile.getPath());
+            if (index != null) {
+                return index;
+            }
+            for (Song songInMap : getSongs().values()) {
+                if (songInMap.getNewFile() != null && songInMap.getNewFile().getPath().equals(newFile.getPath())) {
+                    return songInMap.getIndex();
                 }
             }
 
         } else if (t instanceof File) {
-            for (Integer index : getSongs().keySet()) {
-                Song songInMap = getSongs().get(index);
-                if (songInMap.getFile().getPath().equals(((File) t).getPath())) {
-                    return index;
-                }
-            }
+            return pathIndices.getOrDefault(((File) t).getPath(), -1);
         }
         return -1; // index wasn't found
     }
 
+    /**
+     * Helper method to get the main table's model
+     * @return the table model
+     */
+    private SongTableModel getTableModel() {
+        return (SongTableModel) Moose.getFrame().getTable().getModel();
+    }
+
     /**
      * Utility method that generates a list of songs given an array of rows
      * @param rows the rows to get the songs from
@@ -348,48 +397,88 @@ public class SongController {
     }
 
     /**
-     * Saves each file sequentially
+     * Saves the edited files in the selected rows on the save pool, then updates the table with the results all at once
      * @param selectedRows the rows to save
      */
     public void saveTracks(int[] selectedRows) {
-        // count to show how many files were saved
-        int count = 0;
-
-        // traverse the array of rows and save each file sequentially
+        // get the songs that are actually edited
+        List<Song> songsToSave = new ArrayList<>();
         for (int selectedRow : selectedRows) {
-            int row = Moose.getFrame().getTable().convertRowIndexToModel(selectedRow);    // get the row
-            int index = getIndex(row);
-            // check to see if the index is even edited before saving
+            int index = getIndex(selectedRow);
             if (edited_songs.contains(index)) {
-                // do the save
-                if (songService.save(getSongs().get(index))) {
-                    // set the value of the File on the table's row to the new file
-                    Moose.getFrame().getTable().getModel().setValueAt(songs.get(index).getFile(), row, 1);
-
-                    // update the genre on the table in case we need to remove the INFO icon
-                    Moose.getFrame().getTable().setValueAt(songs.get(index).getGenre(), selectedRow, TABLE_COLUMN_GENRE);
-
-                    // update the row graphic
-                    Moose.getFrame().setRowIcon(Constants.SAVED, getRow(index));
-
-                    // update the multPanelFields
-                    Moose.getFrame().updateMultiplePanelFields();
-
-                    // done saving, remove it
-                    // gives an IndexOutOfBoundsException when trying to remove() with one element in it
-                    if (edited_songs.size() == 1) {
-                        edited_songs.clear();
-                    } else if (edited_songs.size() > 1) {
-                        edited_songs.remove(Integer.valueOf(index));
-                    }
+                songsToSave.add(getSongs().get(index));
+            }
+        }
 
-                    // increment the number of successful saves
-                    count++;
-                }
+        // do the save
+        SaveService.SaveResult result = saveService.saveSongs(songsToSave);
+
+        // update the table in one go
+        Runnable updateTable = () -> updateTableAfterSave(result);
+        if (SwingUtilities.isEventDispatchThread()) {
+            updateTable.run();
+        } else {
+            try {
+                SwingUtilities.invokeAndWait(updateTable);
+            } catch (InterruptedException | InvocationTargetException e) {
+                logger.logError("Exception while updating the table after saving!", e);
+            }
+        }
+    }
+
+    /**
+     * Updates the table rows, the path index and the console with the result of a save.  Should be called on the EDT.
+     * @param result the result of the save
+     */
+    private void updateTableAfterSave(SaveService.SaveResult result) {
+        JTable table = Moose.getFrame().getTable();
+
+        // renamed songs get their new file whether their tag was written or not
+        for (Map.Entry<Integer, File> entry : result.getOldFiles().entrySet()) {
+            Song song = getSongs().get(entry.getKey());
+            fileRenamed(entry.getValue(), song.getFile());
+
+            // set the value of the File on the table's row to the new file
+            int row = getRow(entry.getKey());
+            if (row != -1) {
+                table.getModel().setValueAt(song.getFile(), table.convertRowIndexToModel(row), 1);
+            }
+        }
+
+        for (Song song : result.getSaved()) {
+            int index = song.getIndex();
+
+            // done saving, remove it
+            edited_songs.remove(index);
+
+            int row = getRow(index);
+            if (row == -1) {
+                continue;
             }
+
+            // update the genre on the table in case we need to remove the INFO icon
+            table.setValueAt(song.getGenre(), row, TABLE_COLUMN_GENRE);
+
+            // update the row graphic
+            Moose.getFrame().setRowIcon(Constants.SAVED, row);
         }
 
-        Moose.getFrame().updateConsole(count + " file(s) updated!");
+        // update the multPanelFields
+        Moose.getFrame().updateMultiplePanelFields();
+
+        // let the user know how it went
+        for (Song song : result.getFailed()) {
+            File oldFile = result.getOldFiles().get(song.getIndex());
+            if (oldFile != null) {
+                Moose.getFrame().updateConsole("Renamed " + oldFile.getName() + " to " + song.getFile().getName()
+                        + " but couldn't write its tag: " + result.getErrors().get(song.getIndex()));
+            } else {
+                Moose.getFrame().updateConsole("Couldn't save " + song.getFile().getName() + ": "
+                        + result.getErrors().get(song.getIndex()));
+            }
+        }
+        Moose.getFrame().updateConsole(result.getSaved().size() + " file(s) updated! ("
+                + result.getFilesPerSecond() + " files/sec)");
         this.hasUnsavedChanges = !edited_songs.isEmpty();
     }
 
@@ -537,6 +626,7 @@ public class SongController {
                 } else {
                     // update the song in the songs map
                     setNewFile(getIndex(selectedRow), newFile);
+                    fileRenamed(oldFile, newFile);
                     // update graphics
                     Moose.getFrame().getTable().getModel().setValueAt(newFile, selectedRow, 1);
                 }
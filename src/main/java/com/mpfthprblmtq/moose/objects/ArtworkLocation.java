@@ -0,0 +1,25 @@
+/*
+ *  Proj:   Moose
+ *  File:   ArtworkLocation.java
+ *  Desc:   Pojo for where an mp3's embedded artwork lives in the file (the position and length of the APIC frame's
+ *          data and the artwork's mime type), so the artwork can be read later only if it's needed.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.objects;
+
+// imports
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// class ArtworkLocation
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArtworkLocation {
+    private long offset;            // position of the frame data in the file, right after the frame header
+    private int length;             // length of the frame data
+    private String mimeType;
+}
@@ -0,0 +1,22 @@
+/*
+ *  Proj:   Moose
+ *  File:   AudioInfo.java
+ *  Desc:   Pojo for the audio information of an mp3 file (bitrate, sample rate and length).
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.objects;
+
+// imports
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// class AudioInfo
+@Data
+@AllArgsConstructor
+public class AudioInfo {
+    private int bitrate;            // in kbps
+    private int sampleRate;         // in Hz
+    private long lengthInSeconds;
+}
@@ -0,0 +1,38 @@
+/*
+ *  Proj:   Moose
+ *  File:   AuditAlbum.java
+ *  Desc:   Pojo for an album in an audit.  Holds everything the audit checks look at for an album (its mp3s, the images
+ *          and cover in its directory, the CD folders of a multi-CD album, and the tags of its mp3s once they're read)
+ *          so the checks don't each need to list the album's directory again.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.objects;
+
+// imports
+import lombok.Data;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+// class AuditAlbum
+@Data
+public class AuditAlbum {
+    private File directory;
+    private List<File> mp3Files = new ArrayList<>();        // every mp3 in the album, including the CD folders
+    private List<File> imageFiles = new ArrayList<>();      // images in the album's directory itself
+    private List<File> subfolders = new ArrayList<>();      // CD folders if it's a multi-CD album
+    private File coverFile;                                 // the cover.* file in the album's directory, if there is one
+    private List<Song> songs;                               // tags of the mp3s, in mp3 order, null until they're read
+    private long fingerprint;                               // changes when the album's directories or files change
+
+    /**
+     * Creates a new, empty AuditAlbum
+     * @param directory the album's directory
+     */
+    public AuditAlbum(File directory) {
+        this.directory = directory;
+    }
+}
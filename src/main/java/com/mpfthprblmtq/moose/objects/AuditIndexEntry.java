@@ -0,0 +1,32 @@
+/*
+ *  Proj:   Moose
+ *  File:   AuditIndexEntry.java
+ *  Desc:   Pojo for an entry in the audit index, holds the check results of an album along with the fingerprint of the
+ *          album's files when it was checked.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.objects;
+
+// imports
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// class AuditIndexEntry
+@Data
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class AuditIndexEntry {
+
+    // fingerprint used to check if the entry is still valid
+    private long fingerprint;
+
+    // check results
+    private boolean id3Issues;
+    private boolean fileIssues;
+    private boolean coverIssues;
+}
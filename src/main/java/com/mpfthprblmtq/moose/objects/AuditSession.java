@@ -0,0 +1,28 @@
+/*
+ *  Proj:   Moose
+ *  File:   AuditSession.java
+ *  Desc:   Pojo for the state of an audit in progress, the albums being audited, the album we're on, and a bitmap of
+ *          which albums are done, so an audit can be picked back up where it was left off.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.objects;
+
+// imports
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// class AuditSession
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditSession {
+    private List<String> albums = new ArrayList<>();    // album directory paths, in audit order
+    private int currentIndex;                           // index of the album we're on
+    private byte[] done = new byte[0];                  // bitmap of the albums that are done, by index (BitSet bytes)
+}
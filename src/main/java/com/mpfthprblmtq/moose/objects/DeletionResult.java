@@ -0,0 +1,40 @@
+/*
+ *  Proj:   Moose
+ *  File:   DeletionResult.java
+ *  Desc:   Pojo for the result of a cleanup deletion, how many files were (or would be, on a dry run) deleted, how much
+ *          space that reclaimed, and how long it took.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.objects;
+
+// imports
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// class DeletionResult
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletionResult {
+
+    // if nothing was actually deleted
+    private boolean dryRun;
+
+    // counts
+    private long filesDeleted;
+    private long bytesReclaimed;
+    private long filesFailed;
+
+    // how long it took, in ms
+    private long elapsedMillis;
+
+    /**
+     * @return the number of files deleted per second
+     */
+    public long getFilesPerSecond() {
+        return elapsedMillis == 0 ? filesDeleted : filesDeleted * 1000 / elapsedMillis;
+    }
+}
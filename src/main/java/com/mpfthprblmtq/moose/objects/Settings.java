@@ -32,6 +32,7 @@ public class Settings {
     private String libraryLocation;
     private String applicationSupportLocation;
     private int preferredCoverArtSize;
+    private int id3PaddingReserve;
     private String albumArtFinderApiKey;
     private String albumArtFinderCseId;
     private int albumArtFinderSearchCount;
@@ -48,6 +49,9 @@ public class Settings {
     public static final String CHECK_FOR_NEW_GENRES = "checkForNewGenres";
     public static final String FORMAT_FILENAMES = "formatFilenames";
 
+    // padding left after the id3 tag when a file has to be rewritten, so later saves can be done in place
+    public static final int DEFAULT_ID3_PADDING_RESERVE = 4096;
+
     /**
      * Creates a default settings object
      */
@@ -59,6 +63,7 @@ public class Settings {
         setGenres(new ArrayList<>());
         setLibraryLocation(StringUtils.EMPTY);
         setPreferredCoverArtSize(640);
+        setId3PaddingReserve(DEFAULT_ID3_PADDING_RESERVE);
         setAlbumArtFinderApiKey(StringUtils.EMPTY);
         setAlbumArtFinderCseId(StringUtils.EMPTY);
         setAlbumArtFinderSearchCount(0);
@@ -10,13 +10,16 @@ package com.mpfthprblmtq.moose.objects;
 
 // imports
 import com.mpfthprblmtq.commons.utils.StringUtils;
+import com.mpfthprblmtq.moose.utilities.ArtworkStore;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.Objects;
 
 // class Song
@@ -38,7 +41,14 @@ public class Song {
     private String totalTracks;
     private String disk;
     private String totalDisks;
-    private byte[] artwork_bytes;
+
+    // handle to the artwork in the artwork store, songs with the same artwork share the same bytes
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ArtworkStore.Handle artwork;
+
+    // where the artwork is in the file if it was skipped when the tag was read, read the first time it's needed
+    private ArtworkLocation artworkLocation;
     
     private String bitrate;
     private String sampleRate;
@@ -47,6 +57,23 @@ public class Song {
 
     private int index;
 
+    // bitmask of the fields edited since the song was loaded or last saved
+    private int editedFields;
+
+    // flags for editedFields
+    public static final int TITLE = 1;
+    public static final int ARTIST = 1 << 1;
+    public static final int ALBUM = 1 << 2;
+    public static final int ALBUM_ARTIST = 1 << 3;
+    public static final int GENRE = 1 << 4;
+    public static final int YEAR = 1 << 5;
+    public static final int TRACK = 1 << 6;
+    public static final int DISK = 1 << 7;
+    public static final int ARTWORK = 1 << 8;
+    public static final int COMMENT = 1 << 9;
+    public static final int FILE_NAME = 1 << 10;
+    public static final int ALL_TAG_FIELDS = (1 << 10) - 1;
+
     public Song(File file, File newFile) {
         setFile(file);
         setNewFile(newFile);
@@ -95,7 +122,7 @@ public class Song {
             this.totalDisks = "";
         }
 
-        this.artwork_bytes = artwork_bytes;
+        setArtwork_bytes(artwork_bytes);
         
         // parsing some ints and longs
         this.bitrate = bitrate + " Kbps";
@@ -121,6 +148,113 @@ public class Song {
         return minutes + ":" + seconds;
     }
 
+    /**
+     * Gets the artwork bytes from the artwork store.  The bytes may be shared with other songs, so they shouldn't be
+     * changed.
+     * @return the artwork bytes, or null if there's no artwork
+     */
+    public byte[] getArtwork_bytes() {
+        loadArtwork();
+        return artwork != null ? artwork.getBytes() : null;
+    }
+
+    /**
+     * Puts the artwork bytes in the artwork store and releases the old artwork
+     * @param artwork_bytes the artwork bytes to set
+     */
+    public synchronized void setArtwork_bytes(byte[] artwork_bytes) {
+        if (artwork != null) {
+            artwork.release();
+        }
+        artwork = ArtworkStore.put(artwork_bytes);
+        artworkLocation = null;
+    }
+
+    /**
+     * Sets the artwork to artwork that's already in the artwork store and releases the old artwork
+     * @param handle the handle to the artwork
+     */
+    public synchronized void setArtworkHandle(ArtworkStore.Handle handle) {
+        if (artwork != null) {
+            artwork.release();
+        }
+        artwork = handle;
+        artworkLocation = null;
+    }
+
+    /**
+     * Reads the artwork from the file if it was skipped when the tag was read
+     */
+    private synchronized void loadArtwork() {
+        if (artwork == null && artworkLocation != null) {
+            artwork = ArtworkStore.load(file, artworkLocation);
+            artworkLocation = null;
+        }
+    }
+
+    /**
+     * @return if the song has artwork, without reading it from the file if it hasn't been read yet
+     */
+    public synchronized boolean hasArtwork() {
+        return artwork != null || artworkLocation != null;
+    }
+
+    /**
+     * Checks if another song has the same artwork, without reading the artwork from the file if it can help it.  If
+     * neither song has read its artwork from the same file yet, the artwork is compared by where it is in the file,
+     * otherwise the artwork hashes are compared.
+     * @param song the song to compare with
+     * @return the result of the check
+     */
+    public boolean hasSameArtwork(Song song) {
+        boolean hasArtwork = hasArtwork();
+        if (hasArtwork != song.hasArtwork()) {
+            return false;
+        } else if (!hasArtwork) {
+            return true;
+        }
+        ArtworkLocation location = getArtworkLocation();
+        ArtworkLocation otherLocation = song.getArtworkLocation();
+        if (location != null && otherLocation != null && Objects.equals(file, song.file)) {
+            return location.equals(otherLocation);
+        }
+        return Objects.equals(getArtworkHash(), song.getArtworkHash());
+    }
+
+    /**
+     * Gets a digest of the artwork bytes, so artwork can be compared without comparing all the bytes.  Worked out
+     * when the artwork is set, since it's also the artwork's key in the artwork store, so this reads the artwork if it
+     * was skipped when the tag was read.
+     * @return the artwork hash, or null if there's no artwork
+     */
+    public String getArtworkHash() {
+        loadArtwork();
+        return artwork != null ? artwork.getHash() : null;
+    }
+
+    /**
+     * Marks a field as edited
+     * @param field the flag of the field that was edited
+     */
+    public void fieldEdited(int field) {
+        editedFields |= field;
+    }
+
+    /**
+     * @param field the flag of the field to check
+     * @return if the field was edited since the song was loaded or last saved
+     */
+    public boolean isFieldEdited(int field) {
+        return (editedFields & field) != 0;
+    }
+
+    /**
+     * @return if any of the fields that live in the id3 tag were edited
+     */
+    public boolean hasTagEdits() {
+        return (editedFields & ALL_TAG_FIELDS) != 0;
+    }
+
     /**
      * @return the full track string
      */
@@ -159,7 +293,7 @@ public class Song {
                 Objects.equals(totalTracks, song.totalTracks) &&
                 Objects.equals(disk, song.disk) &&
                 Objects.equals(totalDisks, song.totalDisks) &&
-                Arrays.equals(artwork_bytes, song.artwork_bytes) &&
+                hasSameArtwork(song) &&
                 Objects.equals(bitrate, song.bitrate) &&
                 Objects.equals(sampleRate, song.sampleRate) &&
                 Objects.equals(length, song.length) &&
@@ -186,7 +320,7 @@ public class Song {
                 Objects.equals(totalTracks, song.totalTracks) &&
                 Objects.equals(disk, song.disk) &&
                 Objects.equals(totalDisks, song.totalDisks) &&
-                Arrays.equals(artwork_bytes, song.artwork_bytes) &&
+                hasSameArtwork(song) &&
                 Objects.equals(bitrate, song.bitrate) &&
                 Objects.equals(sampleRate, song.sampleRate) &&
                 Objects.equals(length, song.length) &&
@@ -198,11 +332,10 @@ public class Song {
         return result;
     }
 
+    // the artwork is left out so hashing a song doesn't read its artwork from the file
     @Override
     public int hashCode() {
-        int result = Objects.hash(file, title, artist, album, albumArtist, genre, year, track, totalTracks, disk, totalDisks, bitrate, sampleRate, length, comment);
-        result = 31 * result + Arrays.hashCode(artwork_bytes);
-        return result;
+        return Objects.hash(file, title, artist, album, albumArtist, genre, year, track, totalTracks, disk, totalDisks, bitrate, sampleRate, length, comment);
     }
 
     @Override
@@ -0,0 +1,46 @@
+/*
+ *  Proj:   Moose
+ *  File:   TagCacheEntry.java
+ *  Desc:   Pojo for an entry in the tag cache, holds the parsed Song fields of a file along with the size and last
+ *          modified time of the file when it was parsed.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.objects;
+
+// imports
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// class TagCacheEntry
+@Data
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class TagCacheEntry {
+
+    // file info used to check if the entry is still valid
+    private long size;
+    private long lastModified;
+
+    // song fields
+    private String title;
+    private String artist;
+    private String album;
+    private String albumArtist;
+    private String genre;
+    private String year;
+    private String track;
+    private String totalTracks;
+    private String disk;
+    private String totalDisks;
+    private String bitrate;
+    private String sampleRate;
+    private String length;
+    private String comment;
+    private String artworkHash;                 // if the artwork was read, so it can be found in the artwork store
+    private ArtworkLocation artworkLocation;    // if the artwork was skipped when the file was read
+}
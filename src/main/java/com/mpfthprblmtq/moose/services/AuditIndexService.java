@@ -0,0 +1,143 @@
+/*
+ *  Proj:   Moose
+ *  File:   AuditIndexService.java
+ *  Desc:   Service class for the on-disk audit index.  Keeps the check results of every album we've audited, keyed by
+ *          the album's directory, so albums that haven't changed since they were checked (same fingerprint) don't need
+ *          to be checked again.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.services;
+
+// imports
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpfthprblmtq.commons.logger.Logger;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.AuditAlbum;
+import com.mpfthprblmtq.moose.objects.AuditIndexEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.mpfthprblmtq.moose.utilities.Constants.*;
+
+// class AuditIndexService
+public class AuditIndexService {
+
+    // logger object
+    Logger logger = Moose.getLogger();
+
+    // index file
+    File indexFile;
+
+    // index entries, keyed by album directory path
+    Map<String, AuditIndexEntry> entries = new ConcurrentHashMap<>();
+
+    // if the entries have changed since the last write
+    volatile boolean dirty = false;
+
+    // json mapper
+    final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Creates a new AuditIndexService with the index file in the given directory
+     * @param applicationSupportLocation the directory the index file lives in
+     */
+    public AuditIndexService(String applicationSupportLocation) {
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.indexFile = new File(applicationSupportLocation + "auditIndex.json");
+    }
+
+    /**
+     * Reads the index file into the entries map, if it exists
+     */
+    public void readIndexFile() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        try {
+            Map<String, AuditIndexEntry> map = mapper.readValue(indexFile, new TypeReference<Map<String, AuditIndexEntry>>() {});
+            entries = new ConcurrentHashMap<>(map);
+            dirty = false;
+        } catch (IOException e) {
+            // a bad index just means we check everything again
+            logger.logError("Exception while reading the audit index, starting with an empty index!", e);
+            entries = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Writes the entries map to the index file if anything has changed since the last write
+     * @return the result of the write
+     */
+    public synchronized boolean writeIndexFile() {
+        if (!dirty) {
+            return true;
+        }
+        dirty = false;
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try {
+            mapper.writeValue(tempFile, entries);
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            logger.logError("Exception while writing the audit index!", e);
+            dirty = true;
+            return false;
+        }
+    }
+
+    /**
+     * Gets the check results of an album from the index if the album hasn't changed since it was checked
+     * @param album the album to get the results for
+     * @return the check results, or null if there isn't a valid entry for the album
+     */
+    public List<Boolean> get(AuditAlbum album) {
+        AuditIndexEntry entry = entries.get(album.getDirectory().getPath());
+        if (entry == null || entry.getFingerprint() != album.getFingerprint()) {
+            return null;
+        }
+        return Arrays.asList(entry.isId3Issues(), entry.isFileIssues(), entry.isCoverIssues());
+    }
+
+    /**
+     * Puts the check results of an album into the index
+     * @param album the album that was checked
+     * @param results the check results
+     */
+    public void put(AuditAlbum album, List<Boolean> results) {
+        entries.put(album.getDirectory().getPath(), AuditIndexEntry.builder()
+                .fingerprint(album.getFingerprint())
+                .id3Issues(results.get(ID3))
+                .fileIssues(results.get(FILENAMES))
+                .coverIssues(results.get(COVER))
+                .build());
+        dirty = true;
+    }
+
+    /**
+     * Removes the entries for albums in a folder that aren't albums anymore
+     * @param folder the folder that was audited
+     * @param albums the albums currently in the folder
+     */
+    public void removeMissing(File folder, List<AuditAlbum> albums) {
+        String prefix = folder.getPath() + File.separator;
+        Set<String> current = albums.stream()
+                .map(album -> album.getDirectory().getPath())
+                .collect(Collectors.toSet());
+        if (entries.keySet().removeIf(path -> path.startsWith(prefix) && !current.contains(path))) {
+            dirty = true;
+        }
+    }
+}
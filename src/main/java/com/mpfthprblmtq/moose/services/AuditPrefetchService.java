@@ -0,0 +1,144 @@
+/*
+ *  Proj:   Moose
+ *  File:   AuditPrefetchService.java
+ *  Desc:   Service class for reading ahead in an audit.  While an album is being reviewed, the next few albums have their
+ *          tags read and their thumbnails built on a background thread, one album at a time so a spinning disk isn't
+ *          seeking between them, and the album loads from those songs when the audit gets to it.  Only the albums
+ *          asked for are kept, so at most PREFETCH_DEPTH albums are held at once.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.services;
+
+// imports
+import com.mpfthprblmtq.commons.logger.Logger;
+import com.mpfthprblmtq.commons.utils.FileUtils;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.Song;
+import com.mpfthprblmtq.moose.utilities.ImageUtils;
+import com.mpfthprblmtq.moose.utilities.viewUtils.ThumbnailLoader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// class AuditPrefetchService
+public class AuditPrefetchService {
+
+    // how many albums ahead of the current one get read
+    public static final int PREFETCH_DEPTH = 2;
+
+    // one thread, so the albums are read one after another instead of fighting over the disk
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "moose-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // logger object
+    Logger logger = Moose.getLogger();
+
+    // services
+    SongService songService;
+
+    // albums being read or already read, keyed by directory, in the order they were asked for
+    final Map<File, Future<Map<File, Song>>> prefetched = new LinkedHashMap<>();
+
+    /**
+     * Creates a new AuditPrefetchService
+     * @param songService the song service to read the songs with
+     */
+    public AuditPrefetchService(SongService songService) {
+        this.songService = songService;
+    }
+
+    /**
+     * Starts reading the given albums in the background, and drops anything read ahead that isn't one of them (see
+     * clear)
+     * @param albums the albums to read, at most PREFETCH_DEPTH of them are used
+     */
+    public synchronized void prefetch(List<File> albums) {
+        List<File> wanted = albums.subList(0, Math.min(PREFETCH_DEPTH, albums.size()));
+        Iterator<Map.Entry<File, Future<Map<File, Song>>>> iterator = prefetched.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<File, Future<Map<File, Song>>> entry = iterator.next();
+            if (!wanted.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+        for (File album : wanted) {
+            if (!prefetched.containsKey(album)) {
+                prefetched.put(album, executor.submit(() -> readAlbum(album)));
+            }
+        }
+    }
+
+    /**
+     * Takes an album that was read ahead, waiting for it to finish if it's still being read
+     * @param album the album's directory
+     * @return the album's songs keyed by file, or null if it wasn't read ahead or couldn't be read
+     */
+    public Map<File, Song> take(File album) {
+        Future<Map<File, Song>> future;
+        synchronized (this) {
+            future = prefetched.remove(album);
+        }
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (CancellationException | ExecutionException e) {
+            logger.logError("Exception while reading ahead album: " + album.getPath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Drops everything read ahead and anything waiting to be read.  An album that's partway through being read is
+     * finished and thrown away, interrupting it would close the file it's reading.
+     */
+    public synchronized void clear() {
+        prefetched.values().forEach(future -> future.cancel(false));
+        prefetched.clear();
+    }
+
+    /**
+     * Reads the songs in an album and builds their thumbnails, so the songs already have their artwork and the
+     * thumbnails are in the thumbnail cache when the table asks for them
+     * @param album the album's directory
+     * @return the album's songs keyed by file
+     */
+    private Map<File, Song> readAlbum(File album) {
+        List<File> files = new ArrayList<>();
+        FileUtils.listFiles(album, files);
+
+        Map<File, Song> songs = new HashMap<>();
+        for (File file : files) {
+            if (file.getName().endsWith(".mp3") && !file.getName().startsWith(".")) {
+                Song song = songService.getSongFromFile(file);
+                if (song != null) {
+                    ImageUtils.getScaledImage(song.getArtwork_bytes(), song.getArtworkHash(),
+                            ThumbnailLoader.THUMBNAIL_SIZE);
+                    songs.put(file, song);
+                }
+            }
+        }
+        return songs;
+    }
+}
@@ -15,6 +15,7 @@ import com.mpfthprblmtq.commons.utils.FileUtils;
 import com.mpfthprblmtq.commons.utils.RegexUtils;
 import com.mpfthprblmtq.commons.utils.StringUtils;
 import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.AuditAlbum;
 import com.mpfthprblmtq.moose.objects.Song;
 import com.mpfthprblmtq.moose.utilities.AuditCleanupUtils;
 import com.mpfthprblmtq.moose.utilities.Constants;
@@ -24,9 +25,24 @@ import com.mpfthprblmtq.moose.views.modals.AuditFrame;
 import javax.swing.SwingConstants;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -35,6 +51,19 @@ import static com.mpfthprblmtq.moose.utilities.Constants.*;
 // class AuditController
 public class AuditService {
 
+    // checking albums is mostly waiting on the disk (or the network), so use a few more threads than cores
+    public static final int THREAD_COUNT = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    // how often the progress gets updated while checking albums, in ms
+    private static final long PROGRESS_INTERVAL = 100;
+
+    // shared pool for checking albums
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "moose-audit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // some fields
     AuditFrame auditFrame;
 
@@ -49,42 +78,208 @@ public class AuditService {
     }
 
     /**
-     * Creates a master list of files from the audit folder, then imports all the albums into an albums list
+     * Builds the albums for the audit from a single walk of the audit folder.  Every mp3 is added to its album (the
+     * parent directory, or the one above it for a CD folder of a multi-CD album), and the images and cover files are
+     * picked up along the way, so the checks don't need to list any directories again.
      * @param folder, the folder to import from
+     * @return the albums, sorted alphabetically by their path in the folder
      */
-    public List<File> importAlbums(File folder) {
+    public List<AuditAlbum> importAlbums(File folder) {
+        Map<File, AuditAlbum> albumsByDirectory = walkAlbums(folder);
+        List<AuditAlbum> albums = new ArrayList<>(albumsByDirectory.values());
 
-        // create the main albums list
-        List<File> albums = new ArrayList<>();
+        // sort them alphabetically
+        albums.sort((AuditAlbum o1, AuditAlbum o2) -> {
+            String filename1 = o1.getDirectory().getPath().replace(folder.getPath(), StringUtils.EMPTY);
+            String filename2 = o2.getDirectory().getPath().replace(folder.getPath(), StringUtils.EMPTY);
+            return filename1.compareToIgnoreCase(filename2);
+        });
+
+        return albums;
+    }
+
+    /**
+     * Builds the album for a single directory, for checking an album on its own
+     * @param dir the album's directory
+     * @return the album, with no files if the directory doesn't have any mp3s of its own
+     */
+    public AuditAlbum getAlbum(File dir) {
+        if (dir.getPath().matches(FILENAME_MULTIPLE_CD_FILEPATH)) {
+            dir = dir.getParentFile();
+        }
+        AuditAlbum album = walkAlbums(dir).get(dir);
+        return album != null ? album : new AuditAlbum(dir);
+    }
+
+    /**
+     * Walks the folder once, building an album for every directory with mp3s in it
+     * @param folder the folder to walk
+     * @return the albums keyed by their directory
+     */
+    private Map<File, AuditAlbum> walkAlbums(File folder) {
+        Map<File, AuditAlbum> albums = new LinkedHashMap<>();
+        Map<File, List<File>> imagesByDirectory = new HashMap<>();
+        Map<File, File> coversByDirectory = new HashMap<>();
+        Map<File, Long> directoryFingerprints = new HashMap<>();
 
-        // list to store all the files
-        List<File> allFiles = new ArrayList<>();
-        FileUtils.listFiles(folder, allFiles);
-
-        // traverse the list of files and add the albums to the albums list
-        for (File file : allFiles) {
-            if (file.getName().endsWith(".mp3")) {
-                File a;
-                // folder is a multi-disk album
-                if (file.getPath().matches(FILENAME_MULTIPLE_CD_FILEPATH)) {
-                    a = file.getParentFile().getParentFile();
-                } else {
-                    a = file.getParentFile();
+        try {
+            Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) {
+                    directoryFingerprints.put(path.toFile(), getFingerprint(path, attributes));
+                    return FileVisitResult.CONTINUE;
                 }
-                if (!albums.contains(a)) {
-                    albums.add(a);
+
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                    if (!attributes.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    File file = path.toFile();
+                    String filename = file.getName();
+                    if (filename.endsWith(".mp3")) {
+                        // folder is a multi-disk album
+                        File directory = file.getParentFile();
+                        boolean multipleCD = file.getPath().matches(FILENAME_MULTIPLE_CD_FILEPATH);
+                        AuditAlbum album = albums.computeIfAbsent(
+                                multipleCD ? directory.getParentFile() : directory, AuditAlbum::new);
+                        album.getMp3Files().add(file);
+                        album.setFingerprint(album.getFingerprint() + getFingerprint(path, attributes));
+                        if (multipleCD && !album.getSubfolders().contains(directory)) {
+                            album.getSubfolders().add(directory);
+                        }
+                    } else {
+                        if (filename.startsWith("cover.")) {
+                            if (coversByDirectory.putIfAbsent(file.getParentFile(), file) == null) {
+                                directoryFingerprints.merge(file.getParentFile(), getFingerprint(path, attributes), Long::sum);
+                            }
+                        }
+                        String lowercase = filename.toLowerCase();
+                        if (lowercase.endsWith(".png") || lowercase.endsWith(".jpg") || lowercase.endsWith(".jpeg")) {
+                            imagesByDirectory.computeIfAbsent(file.getParentFile(), dir -> new ArrayList<>()).add(file);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) {
+                    logger.logError("Couldn't read " + path + " while importing albums for the audit!", e);
+                    return FileVisitResult.CONTINUE;
                 }
+            });
+        } catch (IOException e) {
+            logger.logError("Exception while importing albums for the audit from " + folder.getPath(), e);
+        }
+
+        // the images, covers and directory times only matter for directories that turned out to be albums
+        for (AuditAlbum album : albums.values()) {
+            album.setImageFiles(imagesByDirectory.getOrDefault(album.getDirectory(), new ArrayList<>()));
+            album.setCoverFile(coversByDirectory.get(album.getDirectory()));
+            long fingerprint = album.getFingerprint() + directoryFingerprints.getOrDefault(album.getDirectory(), 0L);
+            for (File subfolder : album.getSubfolders()) {
+                fingerprint += directoryFingerprints.getOrDefault(subfolder, 0L);
             }
+            album.setFingerprint(fingerprint);
         }
+        return albums;
+    }
 
-        // sort them alphabetically
-        albums.sort((File o1, File o2) -> {
-            String filename1 = o1.getPath().replace(folder.getPath(), StringUtils.EMPTY);
-            String filename2 = o2.getPath().replace(folder.getPath(), StringUtils.EMPTY);
-            return filename1.compareToIgnoreCase(filename2);
-        });
+    /**
+     * Gets the fingerprint of a single file or directory from its path, size and last modified time.  An album's
+     * fingerprint is the sum of these, so it doesn't depend on the order the walk finds things in.  The directory times
+     * catch files being added, removed or renamed, and the file times catch tags being rewritten in place, since that
+     * usually doesn't change the size.
+     * @param path the path of the file or directory
+     * @param attributes its attributes from the walk
+     * @return the fingerprint
+     */
+    private static long getFingerprint(Path path, BasicFileAttributes attributes) {
+        long hash = path.toString().hashCode();
+        hash = hash * 31 + attributes.size();
+        hash = hash * 31 + attributes.lastModifiedTime().toMillis();
+        // mix the bits so sums of similar files don't cancel out
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
 
-        return albums;
+    /**
+     * Checks all the albums on the pool.  Albums that haven't changed since they were last checked get their results
+     * from the audit index instead, unless it's a full rescan.  The tags of each album are let go once it's checked,
+     * and the progress is handed back on the calling thread as albums finish, at most every PROGRESS_INTERVAL ms.
+     * @param albums the albums to check
+     * @param fullRescan if every album should be checked, even the unchanged ones
+     * @param progressConsumer the consumer for the progress, given the number of albums checked so far and the last
+     *                         album checked
+     * @return the check results of each album in the same order as the albums, null for an album that couldn't be
+     * checked
+     */
+    public List<List<Boolean>> checkAlbums(List<AuditAlbum> albums, boolean fullRescan,
+                                           BiConsumer<Integer, AuditAlbum> progressConsumer) {
+        AtomicReferenceArray<List<Boolean>> results = new AtomicReferenceArray<>(albums.size());
+        AuditIndexService auditIndexService = Moose.getAuditIndexService();
+
+        // take what we can from the index, and only check the rest
+        List<Integer> toCheck = new ArrayList<>();
+        for (int i = 0; i < albums.size(); i++) {
+            List<Boolean> indexed = fullRescan || auditIndexService == null ? null : auditIndexService.get(albums.get(i));
+            if (indexed != null) {
+                results.set(i, indexed);
+            } else {
+                toCheck.add(i);
+            }
+        }
+        int alreadyChecked = albums.size() - toCheck.size();
+        if (alreadyChecked > 0) {
+            progressConsumer.accept(alreadyChecked, albums.get(albums.size() - 1));
+        }
+
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int index : toCheck) {
+            futures.add(completionService.submit(() -> {
+                AuditAlbum album = albums.get(index);
+                try {
+                    List<Boolean> result = getCheckResults(album);
+                    results.set(index, result);
+                    if (auditIndexService != null) {
+                        auditIndexService.put(album, result);
+                    }
+                } catch (RuntimeException e) {
+                    logger.logError("Exception while checking album: " + album.getDirectory().getPath(), e);
+                }
+                album.setSongs(null);
+                return index;
+            }));
+        }
+
+        // wait for them to finish, in whatever order they finish in
+        long lastUpdate = 0;
+        for (int checked = alreadyChecked + 1; checked <= albums.size(); checked++) {
+            int index;
+            try {
+                index = completionService.take().get();
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.logError("Exception while checking albums!", e);
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastUpdate >= PROGRESS_INTERVAL || checked == albums.size()) {
+                lastUpdate = now;
+                progressConsumer.accept(checked, albums.get(index));
+            }
+        }
+
+        List<List<Boolean>> resultList = new ArrayList<>();
+        for (int i = 0; i < results.length(); i++) {
+            resultList.add(results.get(i));
+        }
+        return resultList;
     }
 
     /**
@@ -100,42 +295,27 @@ public class AuditService {
     }
 
     /**
-     * Helper method to get a "pretty" version of the file paths with issues in the file path list to show in the
-     * View Results dialog
-     * @param auditFilePathList the list of lists for all the audit files
-     * @return a string representation of the results
+     * Gets the sections of the audit results to write out in a report, in the order they show up on the View Results
+     * panel
+     * @param auditFilePathList the list of lists for all the audit results
+     * @return the section titles mapped to the paths in each section
      */
-    public String exportAuditResultsToString(List<List<String>> auditFilePathList) {
-
-        // lets make a string
-        String str = "\n";
-
-        str = str.concat(" Some ID3Tags missing:\n");
-        for (String path : auditFilePathList.get(Constants.ID3)) {
-            str = str.concat(" \t" + path + " \n");
-        }
-        str = str.concat("\n");
-        str = str.concat(" Some file paths don't match standard:\n");
-        for (String path : auditFilePathList.get(Constants.FILENAMES)) {
-            str = str.concat(" \t" + path + " \n");
-        }
-        str = str.concat("\n");
-        str = str.concat(" Cover art not found in folder:\n");
-        for (String path : auditFilePathList.get(Constants.COVER)) {
-            str = str.concat(" \t" + path + " \n");
-        }
-        str = str.concat("\n");
-        return str;
+    public Map<String, List<String>> getResultSections(List<List<String>> auditFilePathList) {
+        Map<String, List<String>> sections = new LinkedHashMap<>();
+        sections.put("Some ID3Tags missing", auditFilePathList.get(Constants.ID3));
+        sections.put("Some file paths don't match standard", auditFilePathList.get(Constants.FILENAMES));
+        sections.put("Cover art not found in folder", auditFilePathList.get(Constants.COVER));
+        return sections;
     }
 
     /**
-     * Checks to see if in the audit folder there exists a done file in any of its sub folders.
+     * Checks to see if any of the albums are done in the saved audit session.
      * Called from the startAudit() method in controller.
      * @param albums the list of directories (albums) to check
      * @return the result of the check, true for existing audit, false for no existing audit
      */
     public boolean checkForExistingAudit(List<File> albums) {
-        return albums.stream().anyMatch(this::containsFile);
+        return Moose.getAuditSessionService().hasProgress(albums);
     }
 
     /**
@@ -153,17 +333,23 @@ public class AuditService {
     }
 
     /**
-     * Opens a new audit window and a new frame with a preloaded album
+     * Shows an album in the audit, reloading the frame's table with the album and showing its check results
+     * @param albums the albums in the audit
+     * @param index the index of the album to show
+     * @param results the check results of the album
+     * @param alreadyRead songs in the album that were already read ahead, keyed by file
      */
-    public void openAuditWindow(List<File> albums, int index) {
+    public void openAuditWindow(List<File> albums, int index, List<Boolean> results, Map<File, Song> alreadyRead) {
         // update graphics
         updateLabelAndProgressBarForAudit(index, albums.size());
 
-        // open up a new AuditFrame and a Frame with the album preloaded
-        Moose.getFrame().dispose();
-        Moose.launchFrame(albums.get(index));
+        // reload the frame with the album, and show the album's results on the AuditFrame
+        Moose.getFrame().reloadFolder(albums.get(index), alreadyRead);
         auditFrame = Moose.getAuditFrame();
-        auditFrame.refreshAuditFrameFromAudit(getCheckResults(albums.get(index)), albums.get(index).getPath());
+        auditFrame.refreshAuditFrameFromAudit(results, albums.get(index).getPath());
+
+        // remember where we are in case the audit gets picked back up later
+        Moose.getAuditSessionService().setCurrent(albums.get(index));
     }
 
     /**
@@ -172,6 +358,15 @@ public class AuditService {
      * @return the result of the checks
      */
     public List<Boolean> getCheckResults(File album) {
+        return getCheckResults(getAlbum(album));
+    }
+
+    /**
+     * Returns the check results on each aspect of the album (ID3 tags, filenames, and album cover)
+     * @param album the album to check
+     * @return the result of the checks
+     */
+    public List<Boolean> getCheckResults(AuditAlbum album) {
         List<Boolean> results = new ArrayList<>();
         results.add(id3TagsHaveErrors(album));
         results.add(filesHaveErrors(album));
@@ -194,80 +389,66 @@ public class AuditService {
     }
 
     /**
-     * Gets the next album index in the albums arraylist
+     * Gets the index of the album to pick the audit back up at from the saved audit session
      * @param albums the file list of albums
-     * @return the int index of that album
+     * @return the int index of that album, or -1 if they're all done
      */
     public int getNextAlbum(List<File> albums) {
-        for (File album : albums) {
-            if (isNotDone(album)) {
-                return albums.indexOf(album);
-            }
-        }
-        return -1;
+        return Moose.getAuditSessionService().getNextAlbum(albums);
     }
 
     /**
-     * Function used to create a .done file in the specified folder
-     * @param dir the directory to create the file in
+     * Marks the specified album as done in the audit session
+     * @param dir the album's directory
      */
     public void setDone(File dir) {
-        String path = dir.getPath() + "/.done";
-        File done = new File(path);
-        try {
-            if (!done.createNewFile()) {
-                throw new IOException("Couldn't create .done file in " + dir.getPath());
-            }
-        } catch (IOException ex) {
-            logger.logError("Error creating .done file for auditing in folder: " + path, ex);
-        }
+        Moose.getAuditSessionService().setDone(dir);
     }
 
     /**
-     * Checks if that specified directory/album is done
+     * Checks if that specified directory/album is done in the audit session
      * @param dir the directory to check
-     * @return the result of the check, true for done, false for not done
+     * @return the result of the check, true for not done, false for done
      */
     public boolean isNotDone(File dir) {
-        File[] files = dir.listFiles();
-        assert files != null;
-        for (File file : files) {
-            if (file.getName().equals(".done")) {
-                return false;
-            }
-        }
-        return true;
+        return !Moose.getAuditSessionService().isDone(dir);
     }
 
     /**
-     * Function used to clear all the .done files from the albums list
+     * Starts a new audit session with the given albums, clearing out any previous audit's progress
      * @param albums the file list of all albums
      */
-    public void clearDoneFiles(List<File> albums) {
-        albums.stream()
-                .filter(this::containsFile)
-                .map(File::listFiles)
-                .filter(Objects::nonNull).forEachOrdered((files) -> {
-                    for (File file : files) {
-                        if (file.getName().equals(".done")) {
-                            if (!file.delete()) {
-                                logger.logError("Could not delete .done file in " + file.getParentFile().getPath());
-                            }
-                        }
-                    }
-                });
+    public void startAuditSession(List<File> albums) {
+        Moose.getAuditSessionService().start(albums);
     }
 
     /**
-     * Helper function used to see if there's a .done file in the specified folder
-     * @param dir the directory to check
-     * @return the result of the search, true for file found, false for file not found
+     * Clears the audit session once the audit is finished
      */
-    public boolean containsFile(File dir) {
-        File[] filesInAlbum = dir.listFiles();
-        assert filesInAlbum != null;
-        for (File file : filesInAlbum) {
-            if (file.getName().equals(".done")) {
+    public void clearAuditSession() {
+        Moose.getAuditSessionService().clear();
+    }
+
+    /**
+     * Checks all the mp3s in an album for all the necessary id3 tags
+     * @param album the album to check
+     * @return the result of the check, true if one or more mp3s doesn't have all information needed, false if all mp3s
+     * are good
+     */
+    public boolean id3TagsHaveErrors(AuditAlbum album) {
+        for (Song song : getSongs(album)) {
+            if (song == null) {
+                return true;
+            }
+
+            if (StringUtils.isEmpty(song.getTitle())
+                    || StringUtils.isEmpty(song.getArtist())
+                    || StringUtils.isEmpty(song.getAlbum())
+                    || StringUtils.isEmpty(song.getAlbumArtist())
+                    || StringUtils.isEmpty(song.getGenre())
+                    || StringUtils.isEmpty(song.getYear())
+                    || StringUtils.isEmpty(song.getTrack())
+                    || StringUtils.isEmpty(song.getDisk())) {
                 return true;
             }
         }
@@ -275,41 +456,19 @@ public class AuditService {
     }
 
     /**
-     * Checks all the mp3s in a folder for all the necessary id3 tags
-     * @param dir the folder/album to check
-     * @return the result of the check, true if all mp3s are good, false if one or more doesn't have all information needed
+     * Gets the tags of the album's mp3s, reading them the first time they're needed
+     * @param album the album to get the tags for
+     * @return the songs, null for any mp3 that couldn't be read
      */
-    public boolean id3TagsHaveErrors(File dir) {
-
-        // create a list of all files from that directory
-        List<File> files = new ArrayList<>();
-        FileUtils.listFiles(dir, files);
-
-        // traverse the file list
-        for (File file : files) {
-
-            // check if it's a mp3
-            if (file.getName().endsWith(".mp3")) {
-
-                Song song = Moose.getSongController().getSongService().getSongFromFile(file);
-                if (song == null) {
-                    return true;
-                }
-
-                if (StringUtils.isEmpty(song.getTitle())
-                        || StringUtils.isEmpty(song.getArtist())
-                        || StringUtils.isEmpty(song.getAlbum())
-                        || StringUtils.isEmpty(song.getAlbumArtist())
-                        || StringUtils.isEmpty(song.getGenre())
-                        || StringUtils.isEmpty(song.getYear())
-                        || StringUtils.isEmpty(song.getTrack())
-                        || StringUtils.isEmpty(song.getDisk())
-                        || song.getArtwork_bytes() == null) {
-                    return true;
-                }
+    public List<Song> getSongs(AuditAlbum album) {
+        if (album.getSongs() == null) {
+            List<Song> songs = new ArrayList<>();
+            for (File file : album.getMp3Files()) {
+                songs.add(Moose.getSongController().getSongService().getSongFromFile(file));
             }
+            album.setSongs(songs);
         }
-        return false;
+        return album.getSongs();
     }
 
     /**
@@ -321,25 +480,12 @@ public class AuditService {
     }
 
     /**
-     * Checks the album/folder for a cover.* file (image file)
-     * @param dir the folder/album to check
-     * @return the result of the check, true for a cover file exists, false for a cover file doesn't exist
+     * Checks the album for a cover.* file (image file)
+     * @param album the album to check
+     * @return the result of the check, true if a cover file doesn't exist, false if a cover file exists
      */
-    public boolean coverHasErrors(File dir) {
-
-        if (dir.getPath().matches(FILENAME_MULTIPLE_CD_FILEPATH)) {
-            dir = dir.getParentFile();
-        }
-
-        // check the current directory ivar
-        File[] files = dir.listFiles();
-        assert files != null;
-        for (File file : files) {
-            if (file.getName().startsWith("cover.")) {
-                return false;
-            }
-        }
-        return true;
+    public boolean coverHasErrors(AuditAlbum album) {
+        return album.getCoverFile() == null;
     }
 
     /**
@@ -350,49 +496,43 @@ public class AuditService {
     }
 
     /**
-     * Checks all the files in a folder for the standardized file name
-     * @param dir the folder/album to check
-     * @return the result of the check, true if all files are good, false if one or more doesn't match
+     * Checks all the mp3s in an album for the standardized file name
+     * @param album the album to check
+     * @return the result of the check, true if one or more doesn't match, false if all files are good
      */
-    public boolean filesHaveErrors(File dir) {
-
-        // create a list of all files from that directory
-        List<File> files = new ArrayList<>();
-        FileUtils.listFiles(dir, files);
-
-        // check all mp3 files in that list
-        // also check to see if we're in a label so that we can handle the file path differently
-        for (File file : files) {
-            if (file.getName().endsWith(".mp3")) {
-                if (MP3FileUtils.isPartOfALabel(file)) {
-                    if (MP3FileUtils.isPartOfALabel(file, SINGLES)) {
-                        if (!file.getPath().matches(SINGLES_FILEPATH_REGEX) || file.getName().matches(FILENAME_TRACK_NUMBER_ARTIST_TITLE)) {
-                            return true;
-                        }
-                    } else if (MP3FileUtils.isPartOfALabel(file, COMPILATIONS)) {
-                        if (!file.getPath().matches(COMPILATIONS_FILEPATH_REGEX)) {
-                            return true;
-                        }
-                    } else if (MP3FileUtils.isPartOfALabel(file, LPS)) {
-                        if (!file.getPath().matches(LPS_FILEPATH_REGEX)) {
-                            return true;
-                        }
-                    } else if (MP3FileUtils.isPartOfALabel(file, EPS)) {
-                        if (!file.getPath().matches(EPS_FILEPATH_REGEX)) {
-                            return true;
-                        }
-                    }
-                } else {
-                    if (!file.getPath().matches(GENERAL_FILEPATH)) {
-                        return true;
-                    }
-                }
+    public boolean filesHaveErrors(AuditAlbum album) {
+        for (File file : album.getMp3Files()) {
+            if (fileHasErrors(file)) {
+                return true;
             }
         }
-        // if we're here, the file is good
+        // if we're here, the files are good
         return false;
     }
 
+    /**
+     * Checks an mp3 for the standardized file name, also checks to see if we're in a label so that we can handle the
+     * file path differently
+     * @param file the mp3 to check
+     * @return the result of the check, true if it doesn't match, false if it's good
+     */
+    private boolean fileHasErrors(File file) {
+        if (MP3FileUtils.isPartOfALabel(file)) {
+            if (MP3FileUtils.isPartOfALabel(file, SINGLES)) {
+                return !file.getPath().matches(SINGLES_FILEPATH_REGEX) || file.getName().matches(FILENAME_TRACK_NUMBER_ARTIST_TITLE);
+            } else if (MP3FileUtils.isPartOfALabel(file, COMPILATIONS)) {
+                return !file.getPath().matches(COMPILATIONS_FILEPATH_REGEX);
+            } else if (MP3FileUtils.isPartOfALabel(file, LPS)) {
+                return !file.getPath().matches(LPS_FILEPATH_REGEX);
+            } else if (MP3FileUtils.isPartOfALabel(file, EPS)) {
+                return !file.getPath().matches(EPS_FILEPATH_REGEX);
+            }
+            return false;
+        } else {
+            return !file.getPath().matches(GENERAL_FILEPATH);
+        }
+    }
+
     /**
      * This used to be one hideous method with lots of repeated code, but I broke it into a million pieces and split
      * all the functionality into helper functions, this method is really the controller for all of it.
@@ -0,0 +1,201 @@
+/*
+ *  Proj:   Moose
+ *  File:   AuditSessionService.java
+ *  Desc:   Service class for the audit session file.  Keeps track of which albums in an audit are done in a single file
+ *          in the support directory, so continuing an audit doesn't need to look in any of the album directories, and
+ *          nothing gets written into the library.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.services;
+
+// imports
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpfthprblmtq.commons.logger.Logger;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.AuditSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// class AuditSessionService
+public class AuditSessionService {
+
+    // logger object
+    Logger logger = Moose.getLogger();
+
+    // session file
+    File sessionFile;
+
+    // session state, loaded from the file the first time it's needed
+    boolean loaded = false;
+    List<String> albums = new ArrayList<>();
+    Map<String, Integer> positions = new HashMap<>();   // index of each album in the session, by path
+    BitSet done = new BitSet();
+    int currentIndex;
+
+    // json mapper
+    final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Creates a new AuditSessionService with the session file in the given directory
+     * @param applicationSupportLocation the directory the session file lives in
+     */
+    public AuditSessionService(String applicationSupportLocation) {
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.sessionFile = new File(applicationSupportLocation + "auditSession.json");
+    }
+
+    /**
+     * Starts a new session with the given albums, replacing any existing one
+     * @param albums the albums in the audit, in order
+     */
+    public synchronized void start(List<File> albums) {
+        loaded = true;
+        this.albums = new ArrayList<>();
+        this.positions = new HashMap<>();
+        this.done = new BitSet();
+        this.currentIndex = 0;
+        albums.forEach(this::getPosition);
+        writeSessionFile();
+    }
+
+    /**
+     * Checks if any of the given albums are done in the current session
+     * @param albums the albums to check
+     * @return the result of the check, true for existing audit, false for no existing audit
+     */
+    public synchronized boolean hasProgress(List<File> albums) {
+        load();
+        return !done.isEmpty() && albums.stream().anyMatch(this::isDone);
+    }
+
+    /**
+     * Gets where to pick the audit back up, the album we were on if it's still in the list and isn't done, otherwise
+     * the first album that isn't done
+     * @param albums the albums in the audit
+     * @return the index of that album in the list, or -1 if they're all done
+     */
+    public synchronized int getNextAlbum(List<File> albums) {
+        load();
+        if (currentIndex < this.albums.size()) {
+            int index = albums.indexOf(new File(this.albums.get(currentIndex)));
+            if (index != -1 && !done.get(currentIndex)) {
+                return index;
+            }
+        }
+        for (int i = 0; i < albums.size(); i++) {
+            if (!isDone(albums.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks the album we're on in the session
+     * @param album the album we're on
+     */
+    public synchronized void setCurrent(File album) {
+        load();
+        currentIndex = getPosition(album);
+        writeSessionFile();
+    }
+
+    /**
+     * Marks an album as done in the session
+     * @param album the album that's done
+     */
+    public synchronized void setDone(File album) {
+        load();
+        done.set(getPosition(album));
+        writeSessionFile();
+    }
+
+    /**
+     * Checks if an album is done in the session
+     * @param album the album to check
+     * @return the result of the check, true for done, false for not done
+     */
+    public synchronized boolean isDone(File album) {
+        load();
+        Integer position = positions.get(album.getPath());
+        return position != null && done.get(position);
+    }
+
+    /**
+     * Clears the session and deletes the session file
+     */
+    public synchronized void clear() {
+        loaded = true;
+        albums = new ArrayList<>();
+        positions = new HashMap<>();
+        done = new BitSet();
+        currentIndex = 0;
+        try {
+            Files.deleteIfExists(sessionFile.toPath());
+        } catch (IOException e) {
+            logger.logError("Exception while deleting the audit session file!", e);
+        }
+    }
+
+    /**
+     * Gets the position of an album in the session, adding it to the end if it isn't in it yet (an album that was
+     * renamed by an auto fix, for example)
+     * @param album the album to get the position of
+     * @return the position
+     */
+    private int getPosition(File album) {
+        return positions.computeIfAbsent(album.getPath(), path -> {
+            albums.add(path);
+            return albums.size() - 1;
+        });
+    }
+
+    /**
+     * Reads the session file the first time the session is needed
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!sessionFile.exists()) {
+            return;
+        }
+        try {
+            AuditSession session = mapper.readValue(sessionFile, AuditSession.class);
+            albums = new ArrayList<>(session.getAlbums());
+            for (int i = 0; i < albums.size(); i++) {
+                positions.putIfAbsent(albums.get(i), i);
+            }
+            done = BitSet.valueOf(session.getDone());
+            currentIndex = session.getCurrentIndex();
+        } catch (IOException e) {
+            // a bad session just means the audit starts over
+            logger.logError("Exception while reading the audit session, starting with an empty session!", e);
+        }
+    }
+
+    /**
+     * Writes the session to the session file
+     */
+    private void writeSessionFile() {
+        File tempFile = new File(sessionFile.getPath() + ".tmp");
+        try {
+            mapper.writeValue(tempFile, new AuditSession(albums, currentIndex, done.toByteArray()));
+            Files.move(tempFile.toPath(), sessionFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.logError("Exception while writing the audit session!", e);
+        }
+    }
+}
@@ -11,9 +11,9 @@ package com.mpfthprblmtq.moose.services;
 
 // imports
 import com.mpfthprblmtq.commons.logger.Logger;
-import com.mpfthprblmtq.commons.utils.FileUtils;
 import com.mpfthprblmtq.commons.utils.StringUtils;
 import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.DeletionResult;
 import com.mpfthprblmtq.moose.utilities.AuditCleanupUtils;
 import com.mpfthprblmtq.moose.utilities.Constants;
 import com.mpfthprblmtq.moose.utilities.viewUtils.DialogUtils;
@@ -21,8 +21,34 @@ import lombok.Data;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
 
 // class CleanupService
 @Data
@@ -34,137 +60,319 @@ public class CleanupService {
     // logger
     Logger logger = Moose.getLogger();
 
-    // some count fields
-    int mp3Count;
-    int coverCount;
+    // checking files is just reading directory entries, so a few threads is plenty
+    public static final int THREAD_COUNT = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    // how often the progress gets updated while analyzing, in ms
+    private static final long PROGRESS_INTERVAL = 100;
+
+    // shared pool for walking the folder
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "moose-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // category of each extension we know about, everything else is decided by the file name
+    private static final Map<String, Integer> EXTENSION_CATEGORIES = new HashMap<>();
+    static {
+        EXTENSION_CATEGORIES.put("mp3", Constants.MP3_FILES);
+        EXTENSION_CATEGORIES.put("flac", Constants.FLAC);
+        EXTENSION_CATEGORIES.put("wav", Constants.WAV);
+        EXTENSION_CATEGORIES.put("zip", Constants.ZIP);
+        EXTENSION_CATEGORIES.put("png", Constants.IMG);
+        EXTENSION_CATEGORIES.put("jpg", Constants.IMG);
+        EXTENSION_CATEGORIES.put("jpeg", Constants.IMG);
+        EXTENSION_CATEGORIES.put("JPG", Constants.IMG);
+    }
+
+    // files that aren't counted at all
+    public static final int IGNORED = -1;
+
+    // number of categories, the ones with file path lists plus mp3 and cover files
+    public static final int CATEGORY_COUNT = 9;
+
+    // count and total size of the files in each category, updated as the files are found
+    AtomicLongArray counts = new AtomicLongArray(CATEGORY_COUNT);
+    AtomicLongArray bytes = new AtomicLongArray(CATEGORY_COUNT);
+
+    // paths of every file found in the last analysis, keyed by extension, so deleting by a custom extension doesn't
+    // need to walk the folder again
+    Map<String, List<String>> extensionIndex = new HashMap<>();
 
     /**
-     * Analysis function for cleanup
-     * @param file the file we're checking
+     * Analysis function for cleanup.  Walks the folder, streaming the directory entries instead of listing every file
+     * first, and sorts each file into its category by the file name alone, using the attributes the walk already has
+     * for the size.  Each directory at the top of the folder is its own subtree, walked on the pool at the same time as
+     * the others if parallel, or one after another on a single thread if not.  The progress is handed back on the
+     * calling thread at most every PROGRESS_INTERVAL ms.
      * @param filePathList the list of lists that we'll fill with the analysis results
+     * @param parallel if the subtrees should be walked at the same time
+     * @param progressConsumer the consumer for the progress, given the number of files scanned so far and the
+     *                         percentage of subtrees finished
+     * @return the number of files scanned
      */
-    public void analyzeFile(File file, List<List<String>> filePathList) {
-        // get the filename to check
-        String filename = file.getName();
-
-        // check the ending/extension
-        // add it to the specified sublist
-        if (filename.endsWith(".mp3")) {
-            mp3Count++;
-        } else if (filename.startsWith("cover.")) {
-            coverCount++;
-        } else if (filename.endsWith(".mp3.asd")) {
-            filePathList.get(Constants.MP3ASD).add(file.getPath());
-        } else if (filename.endsWith(".flac")) {
-            filePathList.get(Constants.FLAC).add(file.getPath());
-        } else if (filename.endsWith(".wav")) {
-            filePathList.get(Constants.WAV).add(file.getPath());
-        } else if (filename.endsWith(".zip")) {
-            filePathList.get(Constants.ZIP).add(file.getPath());
+    public long analyze(List<List<String>> filePathList, boolean parallel, BiConsumer<Long, Integer> progressConsumer) {
+        counts = new AtomicLongArray(CATEGORY_COUNT);
+        bytes = new AtomicLongArray(CATEGORY_COUNT);
+        extensionIndex = new HashMap<>();
+        AtomicLong scanned = new AtomicLong();
+
+        // the files at the top go straight in, and every directory there is a subtree
+        List<Path> subtrees = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder.toPath())) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isDirectory()) {
+                    subtrees.add(path);
+                } else if (attributes.isRegularFile()) {
+                    scanned.incrementAndGet();
+                    addFile(path, attributes, filePathList, extensionIndex);
+                }
+            }
+        } catch (IOException e) {
+            logger.logError("Exception while analyzing " + folder.getPath() + " for cleanup!", e);
+            return scanned.get();
+        }
+        subtrees.sort(Comparator.comparing(Path::toString));
+
+        // walk the subtrees, each into its own lists and index
+        AtomicReferenceArray<List<List<String>>> results = new AtomicReferenceArray<>(subtrees.size());
+        List<Map<String, List<String>>> indexes = new ArrayList<>();
+        subtrees.forEach(subtree -> indexes.add(new HashMap<>()));
+        AtomicInteger finished = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        if (parallel) {
+            for (int i = 0; i < subtrees.size(); i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    results.set(index, walkSubtree(subtrees.get(index), scanned, indexes.get(index)));
+                    finished.incrementAndGet();
+                }));
+            }
         } else {
-            final boolean isImageFile = filename.endsWith(".png")
-                    || filename.endsWith(".jpg")
-                    || filename.endsWith(".jpeg")
-                    || filename.endsWith(".JPG");
-            if (isImageFile
-                    && !filename.startsWith("cover.")
-                    && !file.getParentFile().getName().equals("artwork")) {
-                filePathList.get(Constants.IMG).add(file.getPath());
-            } else if (filename.equals("Thumbs.db") || filename.startsWith("folder.")) {
-                filePathList.get(Constants.WINDOWS).add(file.getPath());
-            } else {
-                if (!isImageFile
-                        && !filename.equals("done")
-                        && !filename.equals(".DS_Store")) {
-                    filePathList.get(Constants.OTHER).add(file.getPath());
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < subtrees.size(); i++) {
+                    results.set(i, walkSubtree(subtrees.get(i), scanned, indexes.get(i)));
+                    finished.incrementAndGet();
+                }
+            }));
+        }
+
+        // wait for them to finish, updating the progress along the way
+        waitFor(futures, () -> progressConsumer.accept(scanned.get(),
+                AuditCleanupUtils.formatPercentage(finished.get() - 1, subtrees.size())),
+                "Exception while analyzing " + folder.getPath() + " for cleanup!");
+        progressConsumer.accept(scanned.get(), 100);
+
+        // put the subtrees' lists and indexes together in order
+        for (int i = 0; i < results.length(); i++) {
+            List<List<String>> result = results.get(i);
+            if (result != null) {
+                for (int category = 0; category < filePathList.size() && category < result.size(); category++) {
+                    filePathList.get(category).addAll(result.get(category));
                 }
+                indexes.get(i).forEach((extension, paths) ->
+                        extensionIndex.computeIfAbsent(extension, key -> new ArrayList<>()).addAll(paths));
             }
         }
+        return scanned.get();
     }
 
     /**
-     * Returns a basic version of the cleanup analysis results to show on the AuditFrame cleanup text area
-     * @param filePathList the list of file paths for most of the file types
-     * @return the string version of the results
+     * Waits for tasks on the pool to finish, calling the progress update every PROGRESS_INTERVAL ms while they run.
+     * If the calling thread is interrupted the tasks are cancelled.
+     * @param futures the tasks to wait for
+     * @param progressUpdate what to call to update the progress
+     * @param errorMessage what to log if one of the tasks threw
      */
-    public String getAnalysisResults(List<List<String>> filePathList) {
-        return "MP3 Files:     " + StringUtils.formatNumber(mp3Count) + "\n"
-                + "Cover Files:   " + StringUtils.formatNumber(coverCount) + "\n"
-                + "ZIP Files:     " + StringUtils.formatNumber(filePathList.get(3).size()) + "\n"
-                + "ASD Files:     " + StringUtils.formatNumber(filePathList.get(0).size()) + "\n"
-                + "WAV Files:     " + StringUtils.formatNumber(filePathList.get(2).size()) + "\n"
-                + "FLAC Files:    " + StringUtils.formatNumber(filePathList.get(1).size()) + "\n"
-                + "Image Files:   " + StringUtils.formatNumber(filePathList.get(4).size()) + "\n"
-                + "Windows Files: " + StringUtils.formatNumber(filePathList.get(5).size()) + "\n"
-                + "Other Files:   " + StringUtils.formatNumber(filePathList.get(6).size());
+    private void waitFor(List<Future<?>> futures, Runnable progressUpdate, String errorMessage) {
+        try {
+            for (Future<?> future : futures) {
+                while (true) {
+                    try {
+                        future.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        progressUpdate.run();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.logError(errorMessage, e);
+        }
     }
 
     /**
-     * Helper method to get a "pretty" version of the count of each type of file in the cleanup file path list to show
-     * in the View Results dialog
-     * @param filePathList the list of lists for all the cleanup files
-     * @return a string representation of the results
+     * Walks a subtree, adding every file in it to its category
+     * @param subtree the directory to walk
+     * @param scanned the count of files scanned to add to
+     * @param index the extension index to add every file in the subtree to
+     * @return the file path lists for the subtree
      */
-    public String exportCleanupResultsToString(List<List<String>> filePathList) {
-
-        // lets make a string
-        String str = "\n";
-
-        str = str.concat(" MP3.ASD FILES:\n");
-        for (String path : filePathList.get(Constants.MP3ASD)) {
-            str = str.concat(" \t" + path + " \n");
-        }
-        str = str.concat("\n");
-        str = str.concat(" FLAC FILES:\n");
-        for (String path : filePathList.get(Constants.FLAC)) {
-            str = str.concat(" \t" + path + " \n");
+    private List<List<String>> walkSubtree(Path subtree, AtomicLong scanned, Map<String, List<String>> index) {
+        List<List<String>> filePathList = new ArrayList<>();
+        for (int i = 0; i < Constants.MP3_FILES; i++) {
+            filePathList.add(new ArrayList<>());
         }
-        str = str.concat("\n");
-        str = str.concat(" WAV FILES:\n");
-        for (String path : filePathList.get(Constants.WAV)) {
-            str = str.concat(" \t" + path + " \n");
+        try {
+            Files.walkFileTree(subtree, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (attributes.isRegularFile()) {
+                        scanned.incrementAndGet();
+                        addFile(path, attributes, filePathList, index);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) {
+                    logger.logError("Couldn't read " + path + " while analyzing for cleanup!", e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.logError("Exception while analyzing " + subtree + " for cleanup!", e);
         }
-        str = str.concat("\n");
-        str = str.concat(" ZIP FILES:\n");
-        for (String path : filePathList.get(Constants.ZIP)) {
-            str = str.concat(" \t" + path + " \n");
+        return filePathList;
+    }
+
+    /**
+     * Adds a file to the extension index, to its category's count and size, and to its category's list if it has one
+     * @param path the file
+     * @param attributes the file's attributes
+     * @param filePathList the list of lists to add it to
+     * @param index the extension index to add it to
+     */
+    private void addFile(Path path, BasicFileAttributes attributes, List<List<String>> filePathList,
+                         Map<String, List<String>> index) {
+        String filename = path.getFileName().toString();
+        int dot = filename.lastIndexOf('.');
+        if (dot != -1) {
+            index.computeIfAbsent(filename.substring(dot + 1), key -> new ArrayList<>()).add(path.toString());
         }
-        str = str.concat("\n");
-        str = str.concat(" IMAGE FILES:\n");
-        for (String path : filePathList.get(Constants.IMG)) {
-            str = str.concat(" \t" + path + " \n");
+
+        Path parent = path.getParent();
+        Path parentName = parent != null ? parent.getFileName() : null;
+        int category = getCategory(filename, parentName != null ? parentName.toString() : StringUtils.EMPTY);
+        if (category == IGNORED) {
+            return;
         }
-        str = str.concat("\n");
-        str = str.concat(" WINDOWS FILES:\n");
-        for (String path : filePathList.get(Constants.WINDOWS)) {
-            str = str.concat(" \t" + path + " \n");
+        counts.incrementAndGet(category);
+        bytes.addAndGet(category, attributes.size());
+        if (category < Constants.MP3_FILES) {
+            filePathList.get(category).add(path.toString());
         }
-        str = str.concat("\n");
-        str = str.concat(" OTHER FILES:\n");
-        for (String path : filePathList.get(Constants.OTHER)) {
-            str = str.concat(" \t" + path + " \n");
+    }
+
+    /**
+     * Gets the category of a file from its name
+     * @param filename the name of the file
+     * @param parentName the name of the directory the file is in
+     * @return the category, or IGNORED if the file isn't counted
+     */
+    public static int getCategory(String filename, String parentName) {
+        int dot = filename.lastIndexOf('.');
+        Integer category = dot != -1 ? EXTENSION_CATEGORIES.get(filename.substring(dot + 1)) : null;
+
+        if (category != null && category == Constants.MP3_FILES) {
+            return Constants.MP3_FILES;
+        } else if (filename.startsWith("cover.")) {
+            return Constants.COVER_FILES;
+        } else if (filename.endsWith(".mp3.asd")) {
+            return Constants.MP3ASD;
+        } else if (category != null && category == Constants.IMG) {
+            // images in an artwork folder are kept, unless they're windows files
+            if (!parentName.equals("artwork")) {
+                return Constants.IMG;
+            }
+            return filename.startsWith("folder.") ? Constants.WINDOWS : IGNORED;
+        } else if (category != null) {
+            return category;
+        } else if (filename.equals("Thumbs.db") || filename.startsWith("folder.")) {
+            return Constants.WINDOWS;
+        } else if (filename.equals("done") || filename.equals(".DS_Store")) {
+            return IGNORED;
         }
-        str = str.concat("\n");
-        return str;
+        return Constants.OTHER;
+    }
+
+    /**
+     * Returns a basic version of the cleanup analysis results to show on the AuditFrame cleanup text area
+     * @return the string version of the results
+     */
+    public String getAnalysisResults() {
+        return "MP3 Files:     " + getCountAndSize(Constants.MP3_FILES) + "\n"
+                + "Cover Files:   " + getCountAndSize(Constants.COVER_FILES) + "\n"
+                + "ZIP Files:     " + getCountAndSize(Constants.ZIP) + "\n"
+                + "ASD Files:     " + getCountAndSize(Constants.MP3ASD) + "\n"
+                + "WAV Files:     " + getCountAndSize(Constants.WAV) + "\n"
+                + "FLAC Files:    " + getCountAndSize(Constants.FLAC) + "\n"
+                + "Image Files:   " + getCountAndSize(Constants.IMG) + "\n"
+                + "Windows Files: " + getCountAndSize(Constants.WINDOWS) + "\n"
+                + "Other Files:   " + getCountAndSize(Constants.OTHER);
+    }
+
+    /**
+     * Helper function to get the count and total size of a category for the results
+     * @param category the category
+     * @return the count and size, like "1,234 (56.7 MB)"
+     */
+    private String getCountAndSize(int category) {
+        return StringUtils.formatNumber((int) counts.get(category))
+                + " (" + AuditCleanupUtils.formatBytes(bytes.get(category)) + ")";
+    }
+
+    /**
+     * Gets the sections of the cleanup results to write out in a report, in the order they show up on the View Results
+     * panel
+     * @param filePathList the list of lists for all the cleanup files
+     * @return the section titles mapped to the paths in each section
+     */
+    public Map<String, List<String>> getResultSections(List<List<String>> filePathList) {
+        Map<String, List<String>> sections = new LinkedHashMap<>();
+        sections.put("MP3.ASD FILES", filePathList.get(Constants.MP3ASD));
+        sections.put("FLAC FILES", filePathList.get(Constants.FLAC));
+        sections.put("WAV FILES", filePathList.get(Constants.WAV));
+        sections.put("ZIP FILES", filePathList.get(Constants.ZIP));
+        sections.put("IMAGE FILES", filePathList.get(Constants.IMG));
+        sections.put("WINDOWS FILES", filePathList.get(Constants.WINDOWS));
+        sections.put("OTHER FILES", filePathList.get(Constants.OTHER));
+        return sections;
     }
 
     /**
      * Deletes all files in the cleanupFilePathList arraylist
      * @param cleanupFilePathList the list of all file path lists to delete
+     * @param dryRun if we should only count the files and their size instead of deleting them
+     * @param progressConsumer the consumer for the progress, given the number of files done so far and the percentage
+     * @return the result of the deletion
      */
-    public void deleteAll(List<List<String>> cleanupFilePathList) {
-        int filesDeleted = 0;
+    public DeletionResult deleteAll(List<List<String>> cleanupFilePathList, boolean dryRun,
+                                    BiConsumer<Long, Integer> progressConsumer) {
+        List<String> paths = new ArrayList<>();
         if (!AuditCleanupUtils.isListOfListsEmpty(cleanupFilePathList)) {
             for (List<String> list : cleanupFilePathList) {
-                filesDeleted += deleteAllFilesInList(list);
+                paths.addAll(list);
             }
         }
+        DeletionResult result = delete(paths, dryRun, progressConsumer);
 
         // show success message with total files deleted
-        DialogUtils.showMessageDialog(null, filesDeleted + " file(s) successfully deleted!", "Delete Success", JOptionPane.WARNING_MESSAGE);
+        showDeletionResult(result);
 
         // clear all the lists to reset counts
-        AuditCleanupUtils.clearLists(cleanupFilePathList);
+        if (!dryRun) {
+            AuditCleanupUtils.clearLists(cleanupFilePathList);
+        }
+        return result;
     }
 
     /**
@@ -178,8 +386,11 @@ public class CleanupService {
      * @param windows a boolean to determine if we're deleting windows-specific files (folder.*, thumbs.db, etc.)
      * @param everythingElse a boolean to determine if we're deleting all other random files
      * @param customExtension a string as a certain file extension to delete
+     * @param dryRun if we should only count the files and their size instead of deleting them
+     * @param progressConsumer the consumer for the progress, given the number of files done so far and the percentage
+     * @return the result of the deletion
      */
-    public void deleteSelected(
+    public DeletionResult deleteSelected(
             List<List<String>> cleanupFilePathList,
             boolean mp3asd,
             boolean flac,
@@ -188,89 +399,157 @@ public class CleanupService {
             boolean images,
             boolean windows,
             boolean everythingElse,
-            String customExtension) {
-        int filesDeleted = 0;
+            String customExtension,
+            boolean dryRun,
+            BiConsumer<Long, Integer> progressConsumer) {
 
+        // gather up everything first so it's all deleted in one go, a set so a custom extension that overlaps with one
+        // of the types isn't deleted twice
+        Set<String> paths = new LinkedHashSet<>();
         if (mp3asd) {
-            filesDeleted += deleteFiles(cleanupFilePathList.get(Constants.MP3ASD));
+            paths.addAll(cleanupFilePathList.get(Constants.MP3ASD));
         }
         if (flac) {
-            filesDeleted += deleteFiles(cleanupFilePathList.get(Constants.FLAC));
+            paths.addAll(cleanupFilePathList.get(Constants.FLAC));
         }
         if (wav) {
-            filesDeleted += deleteFiles(cleanupFilePathList.get(Constants.WAV));
+            paths.addAll(cleanupFilePathList.get(Constants.WAV));
         }
         if (zip) {
-            filesDeleted += deleteFiles(cleanupFilePathList.get(Constants.ZIP));
+            paths.addAll(cleanupFilePathList.get(Constants.ZIP));
         }
         if (images) {
-            filesDeleted += deleteFiles(cleanupFilePathList.get(Constants.IMG));
+            paths.addAll(cleanupFilePathList.get(Constants.IMG));
         }
         if (windows) {
-            filesDeleted += deleteFiles(cleanupFilePathList.get(Constants.WINDOWS));
+            paths.addAll(cleanupFilePathList.get(Constants.WINDOWS));
         }
         if (everythingElse) {
-            filesDeleted += deleteFiles(cleanupFilePathList.get(Constants.OTHER));
+            paths.addAll(cleanupFilePathList.get(Constants.OTHER));
         }
         if (StringUtils.isNotEmpty(customExtension)) {
-            filesDeleted += deleteFiles(getAllFilesWithExtension(customExtension));
+            paths.addAll(getFilesWithExtension(customExtension));
         }
+        DeletionResult result = delete(new ArrayList<>(paths), dryRun, progressConsumer);
 
         // show success message with total files deleted
-        DialogUtils.showMessageDialog(null, filesDeleted + " file(s) successfully deleted!", "Delete Success", JOptionPane.WARNING_MESSAGE);
+        showDeletionResult(result);
 
         // clear the list of lists
-        AuditCleanupUtils.clearLists(cleanupFilePathList);
+        if (!dryRun) {
+            AuditCleanupUtils.clearLists(cleanupFilePathList);
+        }
+        return result;
     }
 
     /**
-     * Helper function used by deleteSelected to create a list of all custom file extensions
+     * Helper function used by deleteSelected to get all the files with a custom extension, from the extension index
+     * built in the last analysis
      * @param extension the extension of the files to delete
      * @return a list of the files with that extension
      */
-    private List<String> getAllFilesWithExtension(String extension) {
+    List<String> getFilesWithExtension(String extension) {
+        // the index is keyed by what's after the last dot, so an extension like mp3.asd is under asd
+        String key = extension.substring(extension.lastIndexOf('.') + 1);
         List<String> customExtensionFilePaths = new ArrayList<>();
-        List<File> customExtensionFiles = new ArrayList<>();
-        FileUtils.listFiles(folder, customExtensionFiles);
-
-        for (File file : customExtensionFiles) {
-            if (file.getName().endsWith("." + extension)) {
-                customExtensionFilePaths.add(file.getPath());
+        for (String path : extensionIndex.getOrDefault(key, new ArrayList<>())) {
+            if (path.endsWith("." + extension)) {
+                customExtensionFilePaths.add(path);
             }
         }
         return customExtensionFilePaths;
     }
 
     /**
-     * Helper function used by deleteSelected to prevent some code duplication
-     * @param list the list of file paths to delete
+     * Deletes a list of files.  The files are grouped by the directory they're in, and each directory is deleted from
+     * on the pool, so a few directories are worked on at the same time without every thread fighting over the same one.
+     * The progress is handed back on the calling thread at most every PROGRESS_INTERVAL ms.
+     * @param paths the paths of the files to delete
+     * @param dryRun if we should only count the files and their size instead of deleting them
+     * @param progressConsumer the consumer for the progress, given the number of files done so far and the percentage
+     * @return the result of the deletion
      */
-    private int deleteFiles(List<String> list) {
-        // check to see if the list is empty, return 0 if it is
-        if (list.isEmpty()) {
-            return 0;
+    public DeletionResult delete(List<String> paths, boolean dryRun, BiConsumer<Long, Integer> progressConsumer) {
+        long start = System.currentTimeMillis();
+
+        // group the files by directory
+        Map<Path, List<Path>> directories = new LinkedHashMap<>();
+        for (String path : paths) {
+            Path file = Path.of(path);
+            directories.computeIfAbsent(file.getParent(), key -> new ArrayList<>()).add(file);
+        }
+
+        // delete each directory's files on the pool
+        AtomicLong done = new AtomicLong();
+        AtomicLong deleted = new AtomicLong();
+        AtomicLong reclaimed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<Path> files : directories.values()) {
+            futures.add(executor.submit(() -> {
+                for (Path file : files) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    long size = deleteFile(file, dryRun);
+                    if (size == -1) {
+                        failed.incrementAndGet();
+                    } else {
+                        deleted.incrementAndGet();
+                        reclaimed.addAndGet(size);
+                    }
+                    done.incrementAndGet();
+                }
+            }));
         }
-        return deleteAllFilesInList(list);
+
+        // wait for them to finish, updating the progress along the way
+        waitFor(futures, () -> progressConsumer.accept(done.get(),
+                AuditCleanupUtils.formatPercentage(done.get() - 1, paths.size())),
+                "Exception while deleting files in cleanup!");
+        progressConsumer.accept(done.get(), 100);
+
+        return new DeletionResult(dryRun, deleted.get(), reclaimed.get(), failed.get(),
+                System.currentTimeMillis() - start);
     }
 
     /**
-     * Helper function used to delete files in a specific list
-     * @param list the list of files to delete
+     * Helper function used to delete a single file, or just get its size on a dry run
+     * @param file the file to delete
+     * @param dryRun if we should only get the size of the file instead of deleting it
+     * @return the size of the file, or -1 if it couldn't be deleted
      */
-    public int deleteAllFilesInList(List<String> list) {
-        int filesDeleted = 0;
-        for (String path : list) {
-            File file = new File(path);
-            if (file.exists()) {
-                if (!file.delete()) {
-                    logger.logError("Tried to delete " + file.getPath() + " in cleanup, but couldn't!");
-                } else {
-                    filesDeleted++;
-                }
-            } else {
-                logger.logError("Tried to delete " + file.getPath() + " in cleanup, but the file didn't exist!");
+    private long deleteFile(Path file, boolean dryRun) {
+        try {
+            long size = Files.size(file);
+            if (!dryRun) {
+                Files.delete(file);
             }
+            return size;
+        } catch (NoSuchFileException e) {
+            logger.logError("Tried to delete " + file + " in cleanup, but the file didn't exist!");
+        } catch (IOException e) {
+            logger.logError("Tried to delete " + file + " in cleanup, but couldn't!", e);
+        }
+        return -1;
+    }
+
+    /**
+     * Shows the result of a deletion, how many files were deleted, how much space that freed up, and how fast
+     * @param result the result of the deletion
+     */
+    private void showDeletionResult(DeletionResult result) {
+        String message = StringUtils.formatNumber((int) result.getFilesDeleted())
+                + (result.isDryRun() ? " file(s) would be deleted, reclaiming " : " file(s) successfully deleted, reclaiming ")
+                + AuditCleanupUtils.formatBytes(result.getBytesReclaimed()) + "!";
+        if (!result.isDryRun()) {
+            message += "\n" + StringUtils.formatNumber((int) result.getFilesPerSecond()) + " file(s) per second";
+        }
+        if (result.getFilesFailed() > 0) {
+            message += "\n" + StringUtils.formatNumber((int) result.getFilesFailed())
+                    + " file(s) couldn't be deleted, check the error log for details.";
         }
-        return filesDeleted;
+        DialogUtils.showMessageDialog(null, message, result.isDryRun() ? "Dry Run" : "Delete Success",
+                JOptionPane.WARNING_MESSAGE);
     }
 }
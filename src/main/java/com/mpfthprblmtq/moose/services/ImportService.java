@@ -0,0 +1,164 @@
+/*
+ *  Proj:   Moose
+ *  File:   ImportService.java
+ *  Desc:   Service class for importing files into the table.  Finds the files and reads the tags on a pool of threads
+ *          sized to the number of cores, and hands the results back in order and in chunks, so the table can fill up
+ *          while the rest of the files are still being read.  The artwork isn't read here, the table's thumbnail
+ *          loader reads it for the rows that are visible.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.services;
+
+// imports
+import com.mpfthprblmtq.commons.logger.Logger;
+import com.mpfthprblmtq.commons.utils.FileUtils;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.Song;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// class ImportService
+public class ImportService {
+
+    // how many songs get handed back to the table at once
+    public static final int CHUNK_SIZE = 50;
+
+    // shared pool for the import work, one thread per core
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "moose-import");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // logger object
+    Logger logger = Moose.getLogger();
+
+    // services
+    SongService songService;
+
+    /**
+     * Creates a new ImportService
+     * @param songService the song service to read the songs with
+     */
+    public ImportService(SongService songService) {
+        this.songService = songService;
+    }
+
+    /**
+     * Finds all the files in the given files and directories.  Each subdirectory is listed on the pool, and the result
+     * is sorted by file name.
+     * @param files the files and directories to look through
+     * @return all the files found
+     */
+    public List<File> discoverFiles(File[] files) {
+        List<File> fileList = new ArrayList<>();
+        List<Future<List<File>>> futures = new ArrayList<>();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                File[] children = file.listFiles();
+                if (children == null) {
+                    continue;
+                }
+                for (File child : children) {
+                    if (child.isDirectory()) {
+                        futures.add(executor.submit(() -> {
+                            List<File> filesInDir = new ArrayList<>();
+                            FileUtils.listFiles(child, filesInDir);
+                            return filesInDir;
+                        }));
+                    } else {
+                        fileList.add(child);
+                    }
+                }
+            } else {
+                fileList.add(file);
+            }
+        }
+
+        // collect the files from each directory
+        for (Future<List<File>> future : futures) {
+            try {
+                fileList.addAll(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                logger.logError("Exception while listing files to import!", e);
+            }
+        }
+
+        // sort the file list
+        fileList.sort(Comparator.comparing(File::getName));
+        return fileList;
+    }
+
+    /**
+     * Reads the songs for the given mp3 files on the pool, then hands them back in the same order as the files in
+     * chunks of CHUNK_SIZE as they finish.
+     * @param files the mp3 files to import
+     * @param chunkConsumer the consumer for each chunk of imported songs, called on the calling thread
+     * @return the files that couldn't be read
+     */
+    public List<File> importFiles(List<File> files, Consumer<List<Song>> chunkConsumer) {
+        return importFiles(files, Collections.emptyMap(), chunkConsumer);
+    }
+
+    /**
+     * Reads the songs for the given mp3 files on the pool, using the songs that were already read for any of them,
+     * then hands them back in the same order as the files in chunks of CHUNK_SIZE as they finish.
+     * @param files the mp3 files to import
+     * @param alreadyRead songs that were already read ahead, keyed by file
+     * @param chunkConsumer the consumer for each chunk of imported songs, called on the calling thread
+     * @return the files that couldn't be read
+     */
+    public List<File> importFiles(List<File> files, Map<File, Song> alreadyRead, Consumer<List<Song>> chunkConsumer) {
+        // submit everything at once, the pool keeps it bounded
+        List<Future<Song>> futures = new ArrayList<>();
+        for (File file : files) {
+            Song song = alreadyRead.get(file);
+            futures.add(song != null ? CompletableFuture.completedFuture(song) : executor.submit(() -> importFile(file)));
+        }
+
+        // hand back the results in order, a chunk at a time
+        List<File> failedFiles = new ArrayList<>();
+        List<Song> chunk = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Song song = null;
+            try {
+                song = futures.get(i).get();
+            } catch (InterruptedException | ExecutionException e) {
+                logger.logError("Exception while importing file: " + files.get(i).getName(), e);
+            }
+            if (song != null) {
+                chunk.add(song);
+            } else {
+                failedFiles.add(files.get(i));
+            }
+            if (chunk.size() == CHUNK_SIZE || (i == futures.size() - 1 && !chunk.isEmpty())) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+        return failedFiles;
+    }
+
+    /**
+     * Reads the song for a single file, straight from the file so the song knows where its artwork is
+     * @param file the file to import
+     * @return the imported song, or null if the file couldn't be read
+     */
+    private Song importFile(File file) {
+        return songService.getSongFromFile(file);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Proj:   Moose
+ *  File:   SaveService.java
+ *  Desc:   Service class for saving a batch of songs.  Saves the songs on a small pool of threads, one directory at a
+ *          time per thread so the songs in a directory are saved in order, and collects what was saved and what
+ *          failed into a single result, so the table can be updated all at once afterwards.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.services;
+
+// imports
+import com.mpfthprblmtq.commons.logger.Logger;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.Song;
+import lombok.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// class SaveService
+public class SaveService {
+
+    // saving is mostly waiting on the disk, so a few threads is plenty
+    public static final int THREAD_COUNT = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    // shared pool for the save work
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "moose-save");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // logger object
+    Logger logger = Moose.getLogger();
+
+    // services
+    SongService songService;
+
+    /**
+     * Creates a new SaveService
+     * @param songService the song service to save the songs with
+     */
+    public SaveService(SongService songService) {
+        this.songService = songService;
+    }
+
+    /**
+     * Saves the given songs on the pool.  Songs are grouped by directory, and each directory is saved in order on a
+     * single thread while different directories are saved at the same time.
+     * @param songs the songs to save
+     * @return the result of the save
+     */
+    public SaveResult saveSongs(List<Song> songs) {
+        SaveResult result = new SaveResult();
+
+        // group the songs by directory, keeping the order they came in
+        Map<File, List<Song>> songsByDirectory = new LinkedHashMap<>();
+        for (Song song : songs) {
+            songsByDirectory.computeIfAbsent(song.getFile().getParentFile(), dir -> new ArrayList<>()).add(song);
+        }
+
+        // save each directory on the pool
+        List<Future<SaveResult>> futures = new ArrayList<>();
+        for (List<Song> songsInDirectory : songsByDirectory.values()) {
+            futures.add(executor.submit(() -> saveSongsInOrder(songsInDirectory)));
+        }
+
+        // collect the results
+        for (Future<SaveResult> future : futures) {
+            try {
+                result.add(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                logger.logError("Exception while saving songs!", e);
+            }
+        }
+        result.setElapsedTime(System.currentTimeMillis() - result.getStartTime());
+        return result;
+    }
+
+    /**
+     * Saves the given songs one after another.  A song can be renamed and still fail when its tag is written, so the old
+     * file is recorded for every song whose file changed, saved or not.
+     * @param songs the songs to save
+     * @return the result of the save
+     */
+    private SaveResult saveSongsInOrder(List<Song> songs) {
+        SaveResult result = new SaveResult();
+        for (Song song : songs) {
+            File oldFile = song.getFile();
+            try {
+                songService.saveSong(song);
+                result.getSaved().add(song);
+            } catch (IOException e) {
+                logger.logError("Couldn't save file: " + oldFile.getName(), e);
+                result.getFailed().add(song);
+                result.getErrors().put(song.getIndex(), e.getMessage());
+            }
+            if (!song.getFile().equals(oldFile)) {
+                result.getOldFiles().put(song.getIndex(), oldFile);
+            }
+        }
+        return result;
+    }
+
+    // class SaveResult
+    @Data
+    public static class SaveResult {
+        private List<Song> saved = new ArrayList<>();
+        private List<Song> failed = new ArrayList<>();
+        private Map<Integer, File> oldFiles = new HashMap<>();    // file each renamed song had before the save, by index
+        private Map<Integer, String> errors = new HashMap<>();    // reason each failed song couldn't be saved, by index
+        private long startTime = System.currentTimeMillis();
+        private long elapsedTime;
+
+        /**
+         * Adds another result's songs to this one
+         * @param other the result to add
+         */
+        public void add(SaveResult other) {
+            saved.addAll(other.getSaved());
+            failed.addAll(other.getFailed());
+            oldFiles.putAll(other.getOldFiles());
+            errors.putAll(other.getErrors());
+        }
+
+        /**
+         * @return the number of songs saved per second
+         */
+        public long getFilesPerSecond() {
+            return Math.round(saved.size() * 1000.0 / Math.max(1, elapsedTime));
+        }
+    }
+}
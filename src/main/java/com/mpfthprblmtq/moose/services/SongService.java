@@ -1,28 +1,29 @@
 package com.mpfthprblmtq.moose.services;
 
-import com.mpatric.mp3agic.ID3v1;
-import com.mpatric.mp3agic.ID3v1Tag;
 import com.mpatric.mp3agic.ID3v2;
 import com.mpatric.mp3agic.ID3v24Tag;
-import com.mpatric.mp3agic.ID3v2TagFactory;
 import com.mpatric.mp3agic.InvalidDataException;
 import com.mpatric.mp3agic.Mp3File;
-import com.mpatric.mp3agic.NoSuchTagException;
 import com.mpatric.mp3agic.NotSupportedException;
 import com.mpatric.mp3agic.UnsupportedTagException;
 import com.mpfthprblmtq.commons.logger.Logger;
 import com.mpfthprblmtq.commons.utils.StringUtils;
 import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.ArtworkLocation;
+import com.mpfthprblmtq.moose.objects.AudioInfo;
+import com.mpfthprblmtq.moose.objects.Settings;
 import com.mpfthprblmtq.moose.objects.Song;
+import com.mpfthprblmtq.moose.utilities.MP3HeaderUtils;
 import com.mpfthprblmtq.moose.utilities.viewUtils.ViewUtils;
 
 import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.mpfthprblmtq.moose.utilities.Constants.INFO;
@@ -34,7 +35,9 @@ public class SongService {
     Logger logger = Moose.getLogger();
 
     /**
-     * Gets a song object from a file
+     * Gets a song object from a file.  The song comes from the tag cache when the file hasn't changed since it was last
+     * read, and the file isn't opened at all.  When the file is read, only the artwork's position in the file is
+     * recorded and the bytes are read when they're first asked for.
      * @param file, the file to get info from
      * @return a song object
      */
@@ -45,31 +48,41 @@ public class SongService {
             return null;
         }
 
-        // mp3agic Mp3File and the ID3v24 tag objects, used for the id3 tags
-        Mp3File mp3file;
-        ID3v24Tag id3v24tag;
-        try {
-            // create the mp3file from the file's path
-            mp3file = new Mp3File(file.getPath());
+        // check the cache first
+        TagCacheService tagCacheService = Moose.getTagCacheService();
+        if (tagCacheService != null) {
+            Song song = tagCacheService.get(file);
+            if (song != null) {
+                return song;
+            }
+        }
 
-            // create the id3v24 tag (for the year)
-            try {
-                byte[] buffer = Files.readAllBytes(Paths.get(file.getPath()));
-                id3v24tag = (ID3v24Tag) ID3v2TagFactory.createTag(buffer);
-            } catch (ClassCastException | NoSuchTagException e) {
-                // class cast exception will happen if there is no ID3v24 tag on the file, so let's make one
-                id3v24tag = new ID3v24Tag();
+        // mp3agic ID3v2 tag and the audio info, read straight from the headers
+        ID3v2 id3v2tag;
+        ArtworkLocation artworkLocation = null;
+        AudioInfo audioInfo;
+        try {
+            // read just the tag region and the audio headers from the file, skipping over the artwork until it's needed
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                MP3HeaderUtils.TagWithoutArtwork tagWithoutArtwork = MP3HeaderUtils.readID3v2TagWithoutArtwork(channel);
+                if (tagWithoutArtwork != null) {
+                    id3v2tag = tagWithoutArtwork.getTag();
+                    artworkLocation = tagWithoutArtwork.getArtworkLocation();
+                } else {
+                    id3v2tag = null;
+                }
+                audioInfo = MP3HeaderUtils.readAudioInfo(channel);
             }
 
-            // if the mp3file doesn't have an id3v2tag, create one
-            if (!mp3file.hasId3v2Tag()) {
-                ID3v2 tag = new ID3v24Tag();
-                mp3file.setId3v2Tag(tag);
+            // if the file doesn't have an id3v2tag, create one
+            if (id3v2tag == null) {
+                id3v2tag = new ID3v24Tag();
             }
-            // same thing for the id3v1tag
-            if (!mp3file.hasId3v1Tag()) {
-                ID3v1 tag = new ID3v1Tag();
-                mp3file.setId3v1Tag(tag);
+
+            // if the audio info couldn't be estimated from the headers, fall back to scanning the whole file
+            if (audioInfo == null) {
+                Mp3File mp3file = new Mp3File(file.getPath());
+                audioInfo = new AudioInfo(mp3file.getBitrate(), mp3file.getSampleRate(), mp3file.getLengthInSeconds());
             }
         } catch (IOException | UnsupportedTagException | InvalidDataException e) {
             // things broke
@@ -78,23 +91,23 @@ public class SongService {
         }
 
         // get the id3v2 info
-        String title = mp3file.getId3v2Tag().getTitle();
-        String artist = mp3file.getId3v2Tag().getArtist();
-        String album = mp3file.getId3v2Tag().getAlbum();
-        String albumArtist = mp3file.getId3v2Tag().getAlbumArtist();
-        String genre = mp3file.getId3v2Tag().getGenreDescription();
-        String track = mp3file.getId3v2Tag().getTrack();
-        String disk = mp3file.getId3v2Tag().getPartOfSet();
-        byte[] artwork_bytes = mp3file.getId3v2Tag().getAlbumImage();
+        String title = id3v2tag.getTitle();
+        String artist = id3v2tag.getArtist();
+        String album = id3v2tag.getAlbum();
+        String albumArtist = id3v2tag.getAlbumArtist();
+        String genre = id3v2tag.getGenreDescription();
+        String track = id3v2tag.getTrack();
+        String disk = id3v2tag.getPartOfSet();
+        byte[] artwork_bytes = id3v2tag.getAlbumImage();
 
         // get the year using both because year can be in two places for some reason?
-        String year = getYear(mp3file, id3v24tag);
+        String year = getYear(file, id3v2tag);
 
         // get the extra fields
-        String bitrate = String.valueOf(mp3file.getBitrate());
-        String sampleRate = String.valueOf(mp3file.getSampleRate());
-        String len = String.valueOf(mp3file.getLengthInSeconds());
-        String comment = mp3file.getId3v2Tag().getComment();
+        String bitrate = String.valueOf(audioInfo.getBitrate());
+        String sampleRate = String.valueOf(audioInfo.getSampleRate());
+        String len = String.valueOf(audioInfo.getLengthInSeconds());
+        String comment = id3v2tag.getComment();
 
         // sets the strings to blank to avoid NPE
         title = StringUtils.validateString(title);
@@ -123,7 +136,7 @@ public class SongService {
         }
 
         // create a song object with the information
-        return Song.builder()
+        Song song = Song.builder()
                 .file(file)
                 .title(title)
                 .artist(artist)
@@ -135,19 +148,46 @@ public class SongService {
                 .totalTracks(totalTracks)
                 .disk(disk)
                 .totalDisks(totalDisks)
-                .artwork_bytes(artwork_bytes)
                 .bitrate(bitrate)
                 .sampleRate(sampleRate)
                 .length(len)
                 .comment(comment)
                 .build();
+        if (artworkLocation != null) {
+            song.setArtworkLocation(artworkLocation);
+        } else {
+            song.setArtwork_bytes(artwork_bytes);
+        }
+
+        // update the cache with what we just read
+        if (tagCacheService != null) {
+            tagCacheService.put(song);
+        }
+        return song;
     }
 
     /**
-     * Saves an individual track
+     * Saves an individual track, showing an error dialog if it couldn't be saved
      * @param song the song to save
+     * @return the result of the save
      */
     public boolean save(Song song) {
+        try {
+            saveSong(song);
+            return true;
+        } catch (IOException ex) {
+            logger.logError("Couldn't save file: " + song.getFile().getName(), ex);
+            ViewUtils.showErrorDialog(ex.getMessage(), ex, Moose.getFrame());
+            return false;
+        }
+    }
+
+    /**
+     * Saves an individual track, renaming the file first if it has a new file
+     * @param song the song to save
+     * @throws IOException if the file couldn't be renamed or the tag couldn't be read or written
+     */
+    public void saveSong(Song song) throws IOException {
 
         // check to see if we need to rename the file
         if (song.getNewFile() != null) {
@@ -155,104 +195,148 @@ public class SongService {
                 song.setNewFile(new File(song.getNewFile().getAbsolutePath().concat(".mp3")));
             }
             if (!song.getFile().renameTo(song.getNewFile())) {
-                logger.logError("Problem saving a file on file name change, file: " + song.getFile().getName());
-                ViewUtils.showErrorDialog("Couldn't rename file from " + song.getFile().getName() + " to " + song.getNewFile().getName(), Moose.getFrame());
-                return false;
-            } else {
-                song.setFile(song.getNewFile());
-                song.setNewFile(null);
+                throw new IOException("Couldn't rename file from " + song.getFile().getName() + " to " + song.getNewFile().getName());
+            }
+            if (Moose.getTagCacheService() != null) {
+                Moose.getTagCacheService().remove(song.getFile());
             }
+            song.setFile(song.getNewFile());
+            song.setNewFile(null);
         }
 
-        // try to get the mp3 file object from the file
-        Mp3File mp3file;
-        try {
-            mp3file = new Mp3File(song.getFile().getAbsolutePath());
-            ID3v2 tag = new ID3v24Tag();
-            mp3file.setId3v2Tag(tag);
-        } catch (IOException | UnsupportedTagException | InvalidDataException ex) {
-            logger.logError("Couldn't save file: " + song.getFile().getName(), ex);
-            ViewUtils.showErrorDialog("Couldn't save file: " + song.getFile().getName(), ex, Moose.getFrame());
-            return false;
-        }
+        // only touch the tag if something in it changed, otherwise it was just a rename (or nothing at all)
+        if (song.hasTagEdits()) {
+            // start from the existing tag so only the edited frames change, unless it's an older version or missing,
+            // then build a new v2.4 tag from every field
+            ID3v2 tag;
+            try (FileChannel channel = FileChannel.open(song.getFile().toPath(), StandardOpenOption.READ)) {
+                tag = MP3HeaderUtils.readID3v2Tag(channel);
+            } catch (UnsupportedTagException | InvalidDataException ex) {
+                throw new IOException("Couldn't save file: " + song.getFile().getName(), ex);
+            }
+            int fields = song.getEditedFields();
+            if (!(tag instanceof ID3v24Tag)) {
+                tag = new ID3v24Tag();
+                fields = Song.ALL_TAG_FIELDS;
+            }
+            setTagFields(tag, song, fields);
 
-        // set all the text based items
-        try {
-            // id3v2Tag
-            mp3file.getId3v2Tag().setTitle(song.getTitle());
-            mp3file.getId3v2Tag().setArtist(song.getArtist());
-            mp3file.getId3v2Tag().setAlbum(song.getAlbum());
-            mp3file.getId3v2Tag().setAlbumArtist(song.getAlbumArtist());
-            mp3file.getId3v2Tag().setYear(song.getYear());
-            mp3file.getId3v2Tag().setGenreDescription(song.getGenre().startsWith(INFO) ?
-                    song.getGenre().replace(INFO, StringUtils.EMPTY) : song.getGenre());
-            song.setGenre(mp3file.getId3v2Tag().getGenreDescription());
-            mp3file.getId3v2Tag().setTrack(song.getFullTrackString());
-            mp3file.getId3v2Tag().setPartOfSet(song.getFullDiskString());
-            mp3file.getId3v2Tag().setComment(song.getComment());
-        } catch (IllegalArgumentException ignored) {
-            // this exception doesn't really matter
-            // this only happens if you save a track with no genre
+            // save the id3 info
+            saveID3Info(tag, song.getFile());
         }
 
-        // set album art
-        String type = "image/jpeg";
-        mp3file.getId3v2Tag().clearAlbumImage();
-        mp3file.getId3v2Tag().setAlbumImage(song.getArtwork_bytes(), type);
-
-        // save the id3 info, and return the result
-        return saveID3Info(mp3file, song.getFile());
+        // save was successful, update the cache
+        song.setEditedFields(0);
+        if (Moose.getTagCacheService() != null) {
+            Moose.getTagCacheService().put(song);
+        }
     }
 
     /**
-     * Saves an individual file's id3 information
-     * @param mp3file the mp3 file to source the information from
-     * @param file the actual file to save as
-     * @return the result of the save
+     * Sets the given fields of the song on the tag
+     * @param tag the tag to set the fields on
+     * @param song the song to get the values from
+     * @param fields the bitmask of fields to set, using the flags on Song
      */
-    public boolean saveID3Info(Mp3File mp3file, File file) {
-        try {
-            // save the new mp3 file
-            mp3file.save(file.getAbsolutePath().replace(".mp3", "_.mp3"));
-
-            // delete the old file
-            if (!file.delete()) {
-                logger.logError("Couldn't delete the file to save! Path: " + file.getPath());
-                ViewUtils.showErrorDialog("Couldn't delete the file to save! Path: " + file.getPath(), Moose.getFrame());
-                return false;
+    private void setTagFields(ID3v2 tag, Song song, int fields) {
+        if ((fields & Song.TITLE) != 0) {
+            setTextFrame(tag, "TIT2", song.getTitle(), tag::setTitle);
+        }
+        if ((fields & Song.ARTIST) != 0) {
+            setTextFrame(tag, "TPE1", song.getArtist(), tag::setArtist);
+        }
+        if ((fields & Song.ALBUM) != 0) {
+            setTextFrame(tag, "TALB", song.getAlbum(), tag::setAlbum);
+        }
+        if ((fields & Song.ALBUM_ARTIST) != 0) {
+            setTextFrame(tag, "TPE2", song.getAlbumArtist(), tag::setAlbumArtist);
+        }
+        if ((fields & Song.YEAR) != 0) {
+            setTextFrame(tag, "TYER", song.getYear(), tag::setYear);
+            // keep the recording time in sync if the tag has one, so the years don't disagree on the next read
+            if (tag instanceof ID3v24Tag && StringUtils.isNotEmpty(((ID3v24Tag) tag).getRecordingTime())) {
+                setTextFrame(tag, "TDRC", song.getYear(), ((ID3v24Tag) tag)::setRecordingTime);
             }
-
-            // rename the new file to match the old
-            File newFile = new File(file.getAbsolutePath().replace(".mp3", "_.mp3"));
-            if (!newFile.renameTo(file)) {
-                logger.logError("Couldn't rename the new mp3 back to the original after deleting! Path: " + newFile.getPath());
-                ViewUtils.showErrorDialog("Couldn't rename the new mp3 back to the original after deleting! Path: " + newFile.getPath(), Moose.getFrame());
-                return false;
+        }
+        if ((fields & Song.GENRE) != 0) {
+            try {
+                String genre = song.getGenre() != null && song.getGenre().startsWith(INFO) ?
+                        song.getGenre().replace(INFO, StringUtils.EMPTY) : song.getGenre();
+                setTextFrame(tag, "TCON", genre, tag::setGenreDescription);
+                if (StringUtils.isNotEmpty(genre)) {
+                    song.setGenre(tag.getGenreDescription());
+                }
+            } catch (IllegalArgumentException ignored) {
+                // this exception doesn't really matter
+                // this only happens if you save a track with a genre mp3agic doesn't like
             }
+        }
+        if ((fields & Song.TRACK) != 0) {
+            setTextFrame(tag, "TRCK", song.getFullTrackString(), tag::setTrack);
+        }
+        if ((fields & Song.DISK) != 0) {
+            setTextFrame(tag, "TPOS", song.getFullDiskString(), tag::setPartOfSet);
+        }
+        if ((fields & Song.COMMENT) != 0) {
+            setTextFrame(tag, "COMM", song.getComment(), tag::setComment);
+        }
 
-        } catch (IOException | NotSupportedException ex) {
-            logger.logError("Exception when trying to save a song!", ex);
-            ViewUtils.showErrorDialog("Exception occurred while saving file!", ex, Moose.getFrame());
-            return false;
+        // set album art, only if it changed since re-embedding it is the most expensive part of the tag
+        if ((fields & Song.ARTWORK) != 0) {
+            String type = "image/jpeg";
+            tag.clearAlbumImage();
+            tag.setAlbumImage(song.getArtwork_bytes(), type);
         }
+    }
 
-        // save was successful
-        return true;
+    /**
+     * Sets a text frame on the tag, or removes the frame if the value is empty.  mp3agic's setters ignore empty values,
+     * which would leave the old value in a tag we're editing in place.
+     * @param tag the tag to set the frame on
+     * @param frameId the id of the frame the setter writes to
+     * @param value the value to set
+     * @param setter the tag's setter for the frame
+     */
+    private void setTextFrame(ID3v2 tag, String frameId, String value, Consumer<String> setter) {
+        if (StringUtils.isEmpty(value)) {
+            // the tag's cached length isn't updated, so the frame's old bytes just end up as padding
+            tag.getFrameSets().remove(frameId);
+        } else {
+            setter.accept(value);
+        }
+    }
+
+    /**
+     * Saves an individual file's id3 information.  The tag is written over the existing tag if it fits in the space
+     * the existing tag and its padding take up, otherwise the file is rewritten with the new tag and some padding so
+     * the next save can be done in place.
+     * @param tag the tag to save
+     * @param file the actual file to save to
+     * @throws IOException if the tag couldn't be written
+     */
+    public void saveID3Info(ID3v2 tag, File file) throws IOException {
+        int paddingReserve = Moose.getSettingsController() != null ?
+                Moose.getSettings().getId3PaddingReserve() : Settings.DEFAULT_ID3_PADDING_RESERVE;
+        try {
+            MP3HeaderUtils.writeID3v2Tag(file, tag, paddingReserve);
+        } catch (NotSupportedException ex) {
+            throw new IOException("Couldn't save file: " + file.getName(), ex);
+        }
     }
 
     /**
-     * Utility function to get the year from the mp3 file.  Since the year can be in both the ID3v2.3 tag AND the
-     * ID3v2.4 tag, want to make sure we're getting at least one of those.
-     * @param mp3file the mp3 file object to read from
-     * @param id3v24Tag the id3v2.4 tag
+     * Utility function to get the year from the id3v2 tag.  Since the year can be in both the ID3v2.3 year frame AND
+     * the ID3v2.4 recording time frame, want to make sure we're getting at least one of those.
+     * @param file the file the tag was read from
+     * @param id3v2Tag the id3v2 tag
      */
-    private String getYear(Mp3File mp3file, ID3v24Tag id3v24Tag) {
-        String v2Year = mp3file.getId3v2Tag().getYear();
-        String v24Year = id3v24Tag.getRecordingTime();
+    private String getYear(File file, ID3v2 id3v2Tag) {
+        String v2Year = id3v2Tag.getYear();
+        String v24Year = id3v2Tag instanceof ID3v24Tag ? ((ID3v24Tag) id3v2Tag).getRecordingTime() : null;
 
         // if both are valid and different
         if (StringUtils.isNotEmpty(v2Year) && StringUtils.isNotEmpty(v24Year) && !v2Year.equals(v24Year)) {
-            logger.logError("Years don't match in id3Tag for file: " + mp3file.getFilename() +
+            logger.logError("Years don't match in id3Tag for file: " + file.getPath() +
                     ", v2 Year: " + v2Year + ", v2.4 Year: " + v24Year);
             return v2Year; // return the regular year since that's probably the most accurate
         } else if (StringUtils.isNotEmpty(v2Year) && StringUtils.isNotEmpty(v24Year)) {
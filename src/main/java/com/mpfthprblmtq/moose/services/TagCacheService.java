@@ -0,0 +1,232 @@
+/*
+ *  Proj:   Moose
+ *  File:   TagCacheService.java
+ *  Desc:   Service class for the on-disk tag cache.  Keeps the parsed Song fields of every mp3 we've read, keyed by the
+ *          file's canonical path, so unchanged files (same size and last modified time) don't need to be opened again.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.services;
+
+// imports
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mpfthprblmtq.commons.logger.Logger;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.ArtworkLocation;
+import com.mpfthprblmtq.moose.objects.Song;
+import com.mpfthprblmtq.moose.objects.TagCacheEntry;
+import com.mpfthprblmtq.moose.utilities.ArtworkStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// class TagCacheService
+public class TagCacheService {
+
+    // logger object
+    Logger logger = Moose.getLogger();
+
+    // cache file
+    File cacheFile;
+
+    // cache entries, keyed by canonical path
+    Map<String, TagCacheEntry> entries = new ConcurrentHashMap<>();
+
+    // if the entries have changed since the last write
+    volatile boolean dirty = false;
+
+    // json mapper
+    final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Creates a new TagCacheService with the cache file in the given directory
+     * @param applicationSupportLocation the directory the cache file lives in
+     */
+    public TagCacheService(String applicationSupportLocation) {
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.cacheFile = new File(applicationSupportLocation + "tagCache.json");
+    }
+
+    /**
+     * Reads the cache file into the entries map, if it exists
+     */
+    public void readCacheFile() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try {
+            Map<String, TagCacheEntry> map = mapper.readValue(cacheFile, new TypeReference<Map<String, TagCacheEntry>>() {});
+            entries = new ConcurrentHashMap<>(map);
+            dirty = false;
+        } catch (IOException e) {
+            // a bad cache just means we parse everything again
+            logger.logError("Exception while reading the tag cache, starting with an empty cache!", e);
+            entries = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Writes the entries map to the cache file if anything has changed since the last write
+     * @return the result of the write
+     */
+    public synchronized boolean writeCacheFile() {
+        if (!dirty) {
+            return true;
+        }
+        dirty = false;
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        try {
+            mapper.writeValue(tempFile, entries);
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            logger.logError("Exception while writing the tag cache!", e);
+            dirty = true;
+            return false;
+        }
+    }
+
+    /**
+     * Gets a song from the cache if the file hasn't changed since it was cached.  The song returned has where the
+     * artwork is in the file if we know, or else the artwork from the artwork store if it's still there, so its
+     * artwork can always be read without reading the whole tag again.
+     * @param file the file to get the song for
+     * @return the cached song, or null if there isn't a valid entry for the file, or the entry's artwork can only be
+     * gotten by reading the file again
+     */
+    public Song get(File file) {
+        TagCacheEntry entry = getValidEntry(file);
+        if (entry == null) {
+            return null;
+        }
+
+        // artwork we don't know the location of (like after a save) is only still around if the artwork store has it
+        ArtworkStore.Handle artwork = null;
+        if (entry.getArtworkLocation() == null && entry.getArtworkHash() != null) {
+            artwork = ArtworkStore.acquire(entry.getArtworkHash());
+            if (artwork == null) {
+                return null;
+            }
+        }
+
+        Song song = Song.builder()
+                .file(file)
+                .title(entry.getTitle())
+                .artist(entry.getArtist())
+                .album(entry.getAlbum())
+                .albumArtist(entry.getAlbumArtist())
+                .genre(entry.getGenre())
+                .year(entry.getYear())
+                .track(entry.getTrack())
+                .totalTracks(entry.getTotalTracks())
+                .disk(entry.getDisk())
+                .totalDisks(entry.getTotalDisks())
+                .bitrate(entry.getBitrate())
+                .sampleRate(entry.getSampleRate())
+                .length(entry.getLength())
+                .comment(entry.getComment())
+                .artworkLocation(entry.getArtworkLocation())
+                .build();
+        if (artwork != null) {
+            song.setArtworkHandle(artwork);
+        }
+        return song;
+    }
+
+    /**
+     * Gets the cache entry for a file if the file's size and last modified time still match the entry
+     * @param file the file to get the entry for
+     * @return the entry, or null if there isn't a valid one
+     */
+    private TagCacheEntry getValidEntry(File file) {
+        TagCacheEntry entry = entries.get(getKey(file));
+        if (entry == null) {
+            return null;
+        }
+        BasicFileAttributes attributes = getAttributes(file);
+        if (attributes == null
+                || attributes.size() != entry.getSize()
+                || attributes.lastModifiedTime().toMillis() != entry.getLastModified()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Puts a song read fresh from its file into the cache
+     * @param song the song to cache
+     */
+    public void put(Song song) {
+        BasicFileAttributes attributes = getAttributes(song.getFile());
+        if (attributes == null) {
+            return;
+        }
+        // don't read skipped artwork just to hash it, the location is enough to find it again
+        ArtworkLocation artworkLocation = song.getArtworkLocation();
+        entries.put(getKey(song.getFile()), TagCacheEntry.builder()
+                .size(attributes.size())
+                .lastModified(attributes.lastModifiedTime().toMillis())
+                .title(song.getTitle())
+                .artist(song.getArtist())
+                .album(song.getAlbum())
+                .albumArtist(song.getAlbumArtist())
+                .genre(song.getGenre())
+                .year(song.getYear())
+                .track(song.getTrack())
+                .totalTracks(song.getTotalTracks())
+                .disk(song.getDisk())
+                .totalDisks(song.getTotalDisks())
+                .bitrate(song.getBitrate())
+                .sampleRate(song.getSampleRate())
+                .length(song.getLength())
+                .comment(song.getComment())
+                .artworkHash(artworkLocation == null ? song.getArtworkHash() : null)
+                .artworkLocation(artworkLocation)
+                .build());
+        dirty = true;
+    }
+
+    /**
+     * Removes a file from the cache
+     * @param file the file to remove
+     */
+    public void remove(File file) {
+        if (entries.remove(getKey(file)) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Gets the key for a file in the cache, the canonical path if we can get it
+     * @param file the file to get the key for
+     * @return the key
+     */
+    private String getKey(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Gets the basic file attributes of a file without opening it
+     * @param file the file to check
+     * @return the attributes, or null if we couldn't read them
+     */
+    private BasicFileAttributes getAttributes(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ *  Proj:   Moose
+ *  File:   ArtworkStore.java
+ *  Desc:   A content addressed store for artwork bytes.  Songs hold a handle to their artwork instead of their own copy
+ *          of the bytes, so an album with the same cover on every track only keeps one copy in memory.  Entries are
+ *          reference counted by their handles, and once the store goes over its memory limit the least recently used
+ *          covers are spilled to memory mapped files in the spill directory.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.utilities;
+
+// imports
+import com.mpfthprblmtq.commons.logger.Logger;
+import com.mpatric.mp3agic.InvalidDataException;
+import com.mpatric.mp3agic.UnsupportedTagException;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.ArtworkLocation;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// class ArtworkStore
+public class ArtworkStore {
+
+    // logger object
+    static Logger logger = Moose.getLogger();
+
+    // how much artwork we keep on the heap before spilling to disk
+    public static final long DEFAULT_SPILL_THRESHOLD = 256L * 1024 * 1024;
+
+    // entries keyed by the artwork hash, in least recently used order, guarded by the class lock
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // releases a handle's reference when the handle is garbage collected
+    private static final Cleaner cleaner = Cleaner.create();
+
+    // bytes of artwork currently on the heap
+    private static long bytesInMemory = 0;
+
+    // spill settings, no spill directory means everything stays in memory
+    private static long spillThreshold = DEFAULT_SPILL_THRESHOLD;
+    private static File spillDirectory;
+
+    /**
+     * Puts artwork in the store, or adds a reference to it if the same artwork is already there
+     * @param bytes the artwork bytes
+     * @return a handle to the artwork, or null if there are no bytes
+     */
+    public static Handle put(byte[] bytes) {
+        String hash = ImageUtils.getHash(bytes);
+        if (hash == null) {
+            return null;
+        }
+        synchronized (ArtworkStore.class) {
+            Entry entry = entries.get(hash);
+            if (entry == null) {
+                entry = new Entry(bytes);
+                entries.put(hash, entry);
+                bytesInMemory += bytes.length;
+            }
+            entry.refCount++;
+            spillIfNeeded();
+        }
+        return new Handle(hash);
+    }
+
+    /**
+     * Adds a reference to artwork that's already in the store
+     * @param hash the hash of the artwork
+     * @return a handle to the artwork, or null if the store doesn't have it
+     */
+    public static synchronized Handle acquire(String hash) {
+        Entry entry = entries.get(hash);
+        if (entry == null) {
+            return null;
+        }
+        entry.refCount++;
+        return new Handle(hash);
+    }
+
+    /**
+     * Reads artwork that was skipped when the tag was read and puts it in the store
+     * @param file the mp3 file the artwork is in
+     * @param location where the artwork was recorded in the file
+     * @return a handle to the artwork, or null if it couldn't be read or there isn't any
+     */
+    public static Handle load(File file, ArtworkLocation location) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return put(MP3HeaderUtils.readArtwork(channel, location));
+        } catch (IOException | UnsupportedTagException | InvalidDataException e) {
+            logger.logError("Exception when trying to read artwork from file: " + file.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the artwork bytes for a hash.  The array returned may be shared with other songs, so it shouldn't be changed.
+     * @param hash the hash of the artwork
+     * @return the artwork bytes, or null if the store doesn't have them
+     */
+    public static synchronized byte[] get(String hash) {
+        Entry entry = entries.get(hash);
+        if (entry == null) {
+            return null;
+        } else if (entry.bytes != null) {
+            return entry.bytes;
+        }
+
+        // spilled, copy it back out of the mapped file
+        byte[] bytes = new byte[entry.mapped.capacity()];
+        entry.mapped.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Removes a reference to the artwork, and removes the artwork from the store once nothing references it
+     * @param hash the hash of the artwork
+     */
+    private static synchronized void release(String hash) {
+        Entry entry = entries.get(hash);
+        if (entry == null || --entry.refCount > 0) {
+            return;
+        }
+        entries.remove(hash);
+        if (entry.bytes != null) {
+            bytesInMemory -= entry.bytes.length;
+        }
+        if (entry.spillFile != null && !entry.spillFile.delete()) {
+            entry.spillFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * Spills the least recently used artwork to the spill directory until we're under the spill threshold
+     */
+    private static void spillIfNeeded() {
+        if (spillDirectory == null) {
+            return;
+        }
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (bytesInMemory > spillThreshold && iterator.hasNext()) {
+            Map.Entry<String, Entry> next = iterator.next();
+            Entry entry = next.getValue();
+            if (entry.bytes == null) {
+                continue;
+            }
+            File spillFile = new File(spillDirectory, next.getKey() + ".img");
+            try (FileChannel channel = FileChannel.open(spillFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MP3HeaderUtils.writeFully(channel, ByteBuffer.wrap(entry.bytes), 0);
+                entry.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, entry.bytes.length);
+            } catch (IOException e) {
+                logger.logError("Exception while spilling artwork to " + spillFile.getPath() + ", keeping it in memory!", e);
+                return;
+            }
+            entry.spillFile = spillFile;
+            bytesInMemory -= entry.bytes.length;
+            entry.bytes = null;
+        }
+    }
+
+    /**
+     * Sets the directory artwork gets spilled to, and clears out anything left in it from the last run
+     * @param directory the spill directory, or null to keep everything in memory
+     */
+    public static synchronized void setSpillDirectory(File directory) {
+        spillDirectory = directory;
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory.toPath());
+        } catch (IOException e) {
+            logger.logError("Couldn't create the artwork spill directory, keeping all artwork in memory!", e);
+            spillDirectory = null;
+            return;
+        }
+        File[] leftovers = directory.listFiles((dir, name) -> name.endsWith(".img"));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                if (!leftover.delete()) {
+                    leftover.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets how many bytes of artwork we keep on the heap before spilling
+     * @param threshold the spill threshold in bytes
+     */
+    public static synchronized void setSpillThreshold(long threshold) {
+        spillThreshold = threshold;
+        spillIfNeeded();
+    }
+
+    /**
+     * @return the number of distinct artworks in the store
+     */
+    public static synchronized int getDistinctCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the bytes of artwork currently on the heap
+     */
+    public static synchronized long getBytesInMemory() {
+        return bytesInMemory;
+    }
+
+    // class Entry
+    private static class Entry {
+        byte[] bytes;
+        MappedByteBuffer mapped;
+        File spillFile;
+        int refCount;
+
+        Entry(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    // class Handle, a reference to artwork in the store, released when it's released or garbage collected
+    public static final class Handle {
+        private final String hash;
+        private final Cleaner.Cleanable cleanable;
+
+        private Handle(String hash) {
+            this.hash = hash;
+            this.cleanable = cleaner.register(this, () -> ArtworkStore.release(hash));
+        }
+
+        /**
+         * @return the hash of the artwork this handle references
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * @return the artwork bytes
+         */
+        public byte[] getBytes() {
+            return get(hash);
+        }
+
+        /**
+         * Releases this handle's reference now instead of waiting for it to be garbage collected
+         */
+        public void release() {
+            cleanable.clean();
+        }
+    }
+}
@@ -28,6 +28,25 @@ public class AuditCleanupUtils {
         return (int) percentage;
     }
 
+    /**
+     * Helper function to get a readable size for a number of bytes
+     * @param bytes the number of bytes
+     * @return the size, like "12.3 MB"
+     */
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String[] units = {"KB", "MB", "GB", "TB"};
+        double size = bytes;
+        int unit = -1;
+        while (size >= 1024 && unit < units.length - 1) {
+            size /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", size, units[unit]);
+    }
+
     /**
      * Helper function to check if any of the lists are empty
      * @param lists the list of lists
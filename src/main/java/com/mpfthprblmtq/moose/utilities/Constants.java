@@ -124,6 +124,8 @@ public class Constants {
     public static final int IMG = 4;
     public static final int WINDOWS = 5;
     public static final int OTHER = 6;
+    public static final int MP3_FILES = 7;      // only counted, never deleted
+    public static final int COVER_FILES = 8;    // only counted, never deleted
 
     // settings tabs
     public static final int GENRE = 0;
@@ -14,15 +14,26 @@ import com.mpfthprblmtq.commons.utils.FileUtils;
 import com.mpfthprblmtq.moose.Moose;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.math.BigInteger;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 // class ImageUtils
 public class ImageUtils {
@@ -30,6 +41,25 @@ public class ImageUtils {
     // logger object
     static Logger logger = Moose.getLogger();
 
+    // lobes of the lanczos filter used for cover files
+    private static final int LANCZOS_RADIUS = 3;
+
+    // how many scaled images we keep around
+    public static final int THUMBNAIL_CACHE_SIZE = 256;
+
+    // least recently used cache of scaled images, keyed by the artwork hash and the dimension
+    private static final Map<String, Icon> thumbnailCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(THUMBNAIL_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Icon> eldest) {
+                    return size() > THUMBNAIL_CACHE_SIZE;
+                }
+            });
+
+    // thumbnail cache counters
+    private static final AtomicLong thumbnailCacheHits = new AtomicLong();
+    private static final AtomicLong thumbnailCacheMisses = new AtomicLong();
+
     /**
      * Method for getting the artwork you want to use
      */
@@ -79,54 +109,158 @@ public class ImageUtils {
     }
 
     /**
-     * Gets the scaled instance of album art
+     * Gets the scaled instance of album art, from the thumbnail cache if we've already scaled the same art to the same
+     * dimension
      * @param bytes the album art in a byte array type
      * @param dim the dimension of the image
      * @return the scaled instance of the image
      */
     public static Icon getScaledImage(byte[] bytes, int dim) {
-        Icon thumbnail_icon = null;
-        byte[] scaledBytes;
+        return getScaledImage(bytes, getHash(bytes), dim);
+    }
 
-        if (bytes == null) {
+    /**
+     * Gets the scaled instance of album art when its hash is already known (like a song's artwork hash), so the bytes
+     * don't have to be hashed again to check the thumbnail cache
+     * @param bytes the album art in a byte array type
+     * @param hash the hash of the bytes, from getHash
+     * @param dim the dimension of the image
+     * @return the scaled instance of the image
+     */
+    public static Icon getScaledImage(byte[] bytes, String hash, int dim) {
+        if (bytes == null || hash == null) {
             return null;
         }
 
-        // create a bufferedImage to validate size against
-        BufferedImage bi = getBufferedImageFromBytes(bytes);
+        // check the cache first
+        String key = hash + "@" + dim;
+        Icon icon = thumbnailCache.get(key);
+        if (icon != null) {
+            thumbnailCacheHits.incrementAndGet();
+            return icon;
+        }
+        thumbnailCacheMisses.incrementAndGet();
+
+        // scale it and cache it
+        icon = createScaledImage(bytes, dim);
+        if (icon != null) {
+            thumbnailCache.put(key, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * @return the number of times a scaled image came from the thumbnail cache
+     */
+    public static long getThumbnailCacheHits() {
+        return thumbnailCacheHits.get();
+    }
+
+    /**
+     * @return the number of times a scaled image had to be created
+     */
+    public static long getThumbnailCacheMisses() {
+        return thumbnailCacheMisses.get();
+    }
+
+    /**
+     * Clears the thumbnail cache and its counters
+     */
+    public static void clearThumbnailCache() {
+        thumbnailCache.clear();
+        thumbnailCacheHits.set(0);
+        thumbnailCacheMisses.set(0);
+    }
+
+    /**
+     * Creates the scaled instance of album art
+     * @param bytes the album art in a byte array type
+     * @param dim the dimension of the image
+     * @return the scaled instance of the image
+     */
+    private static Icon createScaledImage(byte[] bytes, int dim) {
+        // decode just the square we need at a resolution close to the size we want
+        BufferedImage bi = getThumbnailImageFromBytes(bytes, dim);
         if (bi == null) {
             return null;
         }
 
-        // if the dimensions aren't the same, get the non-stretched square version
+        // scaling down the image
+        return new ImageIcon(resize(bi, dim));
+    }
+
+    /**
+     * Decodes the centered square of an image for a thumbnail.  Only the square region is read, and rows and columns
+     * are skipped while decoding so the result is still at least twice the size we want, leaving the last bit of
+     * scaling to resize() for quality.  A 3000px cover for a 100px thumbnail is decoded at 200px or so instead of
+     * allocating the full 3000x3000.
+     * @param bytes the image bytes
+     * @param dim the dimension of the thumbnail the image is for
+     * @return the decoded square image, or null if it couldn't be decoded
+     */
+    public static BufferedImage getThumbnailImageFromBytes(byte[] bytes, int dim) {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = iis != null ? ImageIO.getImageReaders(iis) : null;
+            if (readers != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(iis, true, true);
+                    int width = reader.getWidth(0);
+                    int height = reader.getHeight(0);
+                    int side = Math.min(width, height);
+                    int subsampling = Math.max(1, side / (dim * 2));
+
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceRegion(new Rectangle((width - side) / 2, (height - side) / 2, side, side));
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    return reader.read(0, param);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // some images (CMYK jpegs and the like) can't be read this way, fall back to the full decode below
+        }
+        return getSquareImage(getBufferedImageFromBytes(bytes));
+    }
+
+    /**
+     * Gets the centered, non-stretched square version of an image
+     * @param bi the image to crop
+     * @return the square image, or null if there's no image
+     */
+    private static BufferedImage getSquareImage(BufferedImage bi) {
+        if (bi == null) {
+            return null;
+        }
         if (bi.getHeight() > bi.getWidth()) {
             // image is taller
             int diff = bi.getHeight() - bi.getWidth();
-            bi = bi.getSubimage(0, diff / 2, bi.getWidth(), bi.getWidth());
-            scaledBytes = getBytesFromBufferedImage(bi);
+            return bi.getSubimage(0, diff / 2, bi.getWidth(), bi.getWidth());
         } else if (bi.getHeight() < bi.getWidth()) {
             // image is wider
             int diff = bi.getWidth() - bi.getHeight();
-            bi = bi.getSubimage(diff / 2, 0, bi.getHeight(), bi.getHeight());
-            scaledBytes = getBytesFromBufferedImage(bi);
-        } else {
-            // image has equal width and height
-            scaledBytes = bytes;
+            return bi.getSubimage(diff / 2, 0, bi.getHeight(), bi.getHeight());
         }
+        // image has equal width and height
+        return bi;
+    }
 
+    /**
+     * Gets a content hash of an image's bytes, used to tell if two images are the same without comparing all the bytes
+     * @param bytes the image bytes to hash
+     * @return the hash as a hex string, or null if there are no bytes
+     */
+    public static String getHash(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
         try {
-            // getting the image from the byte array
-            ImageIcon icon = new ImageIcon(scaledBytes);
-            Image img = icon.getImage();
-
-            // scaling down the image
-            Image thumbnail = img.getScaledInstance(dim, dim, java.awt.Image.SCALE_SMOOTH);
-            thumbnail_icon = new ImageIcon(thumbnail);
-
-        } catch (NullPointerException e) {
-            logger.logError("NullPointerException while trying to scale an image!", e);
+            return new BigInteger(1, MessageDigest.getInstance("SHA-1").digest(bytes)).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            logger.logError("NoSuchAlgorithmException while trying to hash an image!", e);
+            return null;
         }
-        return thumbnail_icon;
     }
 
     /**
@@ -195,8 +329,12 @@ public class ImageUtils {
     /**
      * Returns a buffered image from a byte array
      * @param bytes the bytes to read from
+     * @return the image, or null if there are no bytes or they aren't an image
      */
     public static BufferedImage getBufferedImageFromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
         try {
             InputStream is = new ByteArrayInputStream(bytes);
             return ImageIO.read(is);
@@ -218,7 +356,7 @@ public class ImageUtils {
         File outputFile = new File(filePath);
 
         if(img.getWidth() != dim || img.getHeight() != dim) {
-            img = resize(img, dim);
+            img = resizeLanczos(img, dim, dim);
         }
 
         try {
@@ -238,14 +376,176 @@ public class ImageUtils {
      * @return a resized image
      */
     public static BufferedImage resize(BufferedImage img, int dim) {
-        Image tmp = img.getScaledInstance(dim, dim, Image.SCALE_SMOOTH);
-        BufferedImage resized = new BufferedImage(dim, dim, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = resized.createGraphics();
-        g2d.drawImage(tmp, 0, 0, null);
+        return resize(img, dim, dim);
+    }
+
+    /**
+     * Resizes a BufferedImage by halving it with bilinear interpolation until it's less than twice the size we want,
+     * then doing one last bicubic step to the exact size.  Each step only looks at a couple of pixels per output
+     * pixel, so halving keeps the steps from skipping over pixels and gets close to area averaging at a fraction of
+     * the cost of getScaledInstance.
+     * @param img the buffered image to resize
+     * @param width the width of the resized image
+     * @param height the height of the resized image
+     * @return a resized image
+     */
+    public static BufferedImage resize(BufferedImage img, int width, int height) {
+        BufferedImage current = img;
+        int currentWidth = img.getWidth();
+        int currentHeight = img.getHeight();
+
+        // halve it while we're still more than twice the size
+        while (currentWidth / 2 >= width && currentHeight / 2 >= height) {
+            currentWidth /= 2;
+            currentHeight /= 2;
+            current = drawScaled(current, currentWidth, currentHeight, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+
+        // last step to the exact size
+        if (current == img || currentWidth != width || currentHeight != height) {
+            current = drawScaled(current, width, height, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        }
+        return current;
+    }
+
+    /**
+     * Draws an image into a new RGB image of the given size with the given interpolation.  Drawing into TYPE_INT_RGB
+     * keeps every step on Java2D's fast path no matter what type ImageIO decoded the source as.
+     * @param img the image to draw
+     * @param width the width of the new image
+     * @param height the height of the new image
+     * @param interpolation the interpolation rendering hint to use
+     * @return the new image
+     */
+    private static BufferedImage drawScaled(BufferedImage img, int width, int height, Object interpolation) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.drawImage(img, 0, 0, width, height, null);
         g2d.dispose();
+        return scaled;
+    }
+
+    /**
+     * Resizes a BufferedImage with a Lanczos (a = 3) filter.  Slower than resize(), but sharper, so it's used for the
+     * cover files we write out.  Really big images are halved first until they're within 4x of the size we want, since
+     * the filter's cost grows with the size of the source.
+     * @param img the buffered image to resize
+     * @param width the width of the resized image
+     * @param height the height of the resized image
+     * @return a resized image, without alpha
+     */
+    public static BufferedImage resizeLanczos(BufferedImage img, int width, int height) {
+        while (img.getWidth() / 2 >= width * 2 && img.getHeight() / 2 >= height * 2) {
+            img = drawScaled(img, img.getWidth() / 2, img.getHeight() / 2, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+
+        int srcWidth = img.getWidth();
+        int srcHeight = img.getHeight();
+        int[] src = img.getRGB(0, 0, srcWidth, srcHeight, null, 0, srcWidth);
+
+        // horizontal pass, into a float buffer of rgb values
+        float[][] xWeights = new float[width][];
+        int[] xStarts = new int[width];
+        getLanczosWeights(srcWidth, width, xStarts, xWeights);
+        float[] horizontal = new float[srcHeight * width * 3];
+        for (int y = 0; y < srcHeight; y++) {
+            int row = y * srcWidth;
+            for (int x = 0; x < width; x++) {
+                float r = 0, g = 0, b = 0;
+                float[] weights = xWeights[x];
+                for (int i = 0; i < weights.length; i++) {
+                    int pixel = src[row + xStarts[x] + i];
+                    r += weights[i] * ((pixel >> 16) & 0xFF);
+                    g += weights[i] * ((pixel >> 8) & 0xFF);
+                    b += weights[i] * (pixel & 0xFF);
+                }
+                int out = (y * width + x) * 3;
+                horizontal[out] = r;
+                horizontal[out + 1] = g;
+                horizontal[out + 2] = b;
+            }
+        }
+
+        // vertical pass, into the resized image
+        float[][] yWeights = new float[height][];
+        int[] yStarts = new int[height];
+        getLanczosWeights(srcHeight, height, yStarts, yWeights);
+        int[] resizedPixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            float[] weights = yWeights[y];
+            for (int x = 0; x < width; x++) {
+                float r = 0, g = 0, b = 0;
+                for (int i = 0; i < weights.length; i++) {
+                    int in = ((yStarts[y] + i) * width + x) * 3;
+                    r += weights[i] * horizontal[in];
+                    g += weights[i] * horizontal[in + 1];
+                    b += weights[i] * horizontal[in + 2];
+                }
+                resizedPixels[y * width + x] = (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+            }
+        }
+
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        resized.setRGB(0, 0, width, height, resizedPixels, 0, width);
         return resized;
     }
 
+    /**
+     * Works out which source pixels and weights go into each output pixel along one axis for a Lanczos resize
+     * @param srcLength the length of the source along this axis
+     * @param dstLength the length of the output along this axis
+     * @param starts filled with the first source pixel for each output pixel
+     * @param weights filled with the normalized weights for each output pixel
+     */
+    private static void getLanczosWeights(int srcLength, int dstLength, int[] starts, float[][] weights) {
+        double scale = (double) srcLength / dstLength;
+        double filterScale = Math.max(scale, 1.0);  // widen the filter when shrinking so every pixel is counted
+        double support = LANCZOS_RADIUS * filterScale;
+        for (int i = 0; i < dstLength; i++) {
+            double center = (i + 0.5) * scale - 0.5;
+            int start = Math.max(0, (int) Math.ceil(center - support));
+            int end = Math.min(srcLength - 1, (int) Math.floor(center + support));
+            float[] w = new float[end - start + 1];
+            double total = 0;
+            for (int j = start; j <= end; j++) {
+                double weight = lanczos((j - center) / filterScale);
+                w[j - start] = (float) weight;
+                total += weight;
+            }
+            for (int j = 0; j < w.length; j++) {
+                w[j] /= (float) total;
+            }
+            starts[i] = start;
+            weights[i] = w;
+        }
+    }
+
+    /**
+     * The Lanczos kernel
+     * @param x the distance from the center
+     * @return the weight at that distance
+     */
+    private static double lanczos(double x) {
+        if (x == 0) {
+            return 1;
+        } else if (Math.abs(x) >= LANCZOS_RADIUS) {
+            return 0;
+        }
+        double piX = Math.PI * x;
+        return LANCZOS_RADIUS * Math.sin(piX) * Math.sin(piX / LANCZOS_RADIUS) / (piX * piX);
+    }
+
+    /**
+     * Clamps a color channel to 0-255
+     * @param value the channel value
+     * @return the clamped value
+     */
+    private static int clamp(float value) {
+        return Math.min(255, Math.max(0, Math.round(value)));
+    }
+
     /**
      * Combines BufferedImages (from byte arrays) by cascading them for use in the mult panel
      * @param images the images to combine
@@ -21,7 +21,9 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.mpfthprblmtq.moose.utilities.Constants.*;
 
@@ -31,7 +33,8 @@ public class MP3FileUtils {
     static Logger logger = Moose.getLogger();
 
     /**
-     * Gets all mp3 files and converts them to Song objects from a directory and its subdirectories
+     * Gets all mp3 files and converts them to Song objects from a directory and its subdirectories, from the tag cache
+     * for the files that haven't changed since they were last read
      * @param dir the directory of files to get the mp3s
      * @return a list of all mp3 files
      */
@@ -49,6 +52,35 @@ public class MP3FileUtils {
         return songs;
     }
 
+    /**
+     * Checks if all the songs have the same artwork, comparing where the artwork is or its hash instead of the bytes
+     * @param songs the songs to check
+     * @return the result of the check
+     */
+    public static boolean checkIfSameArtwork(List<Song> songs) {
+        Song first = songs.get(0);
+        for (Song song : songs) {
+            if (!first.hasSameArtwork(song)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the unique artworks of the songs, in the order they're first seen, comparing artwork hashes instead of the
+     * bytes
+     * @param songs the songs to get the artwork from
+     * @return the unique artwork byte arrays
+     */
+    public static List<byte[]> getUniqueArtwork(List<Song> songs) {
+        Map<String, byte[]> uniqueArtwork = new LinkedHashMap<>();
+        for (Song song : songs) {
+            uniqueArtwork.putIfAbsent(song.getArtworkHash(), song.getArtwork_bytes());
+        }
+        return new ArrayList<>(uniqueArtwork.values());
+    }
+
     /**
      * Check if a directory is from a label
      * @param dir the directory to check
@@ -214,12 +246,8 @@ public class MP3FileUtils {
         // share the same cover art, and grab the image if they do
         List<Song> songs = MP3FileUtils.getAllSongsInDirectory(folder);
 
-        List<byte[]> bytesList = new ArrayList<>();
-        for (Song song : songs) {
-            bytesList.add(song.getArtwork_bytes());
-        }
-        if (ImageUtils.checkIfSame(bytesList.get(0), bytesList)) {
-            byte[] bytes = bytesList.get(0);
+        if (!songs.isEmpty() && songs.get(0).hasArtwork() && checkIfSameArtwork(songs)) {
+            byte[] bytes = songs.get(0).getArtwork_bytes();
             BufferedImage image = ImageUtils.getBufferedImageFromBytes(bytes);
             // check if it meets the size requirement first (both size wise, and dimension wise, shouldn't take a cover
             // with differing height and width
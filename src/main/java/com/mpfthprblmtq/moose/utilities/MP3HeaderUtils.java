@@ -0,0 +1,610 @@
+/*
+ *  Proj:   Moose
+ *  File:   MP3HeaderUtils.java
+ *  Desc:   A utility class for reading and writing header level information (the ID3v2 tag region and the MPEG
+ *          audio headers) straight from an mp3 file without reading the audio data.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.utilities;
+
+// imports
+import com.mpatric.mp3agic.BufferTools;
+import com.mpatric.mp3agic.ID3v2;
+import com.mpatric.mp3agic.ID3v2PictureFrameData;
+import com.mpatric.mp3agic.ID3v2TagFactory;
+import com.mpatric.mp3agic.InvalidDataException;
+import com.mpatric.mp3agic.MpegFrame;
+import com.mpatric.mp3agic.NoSuchTagException;
+import com.mpatric.mp3agic.NotSupportedException;
+import com.mpatric.mp3agic.UnsupportedTagException;
+import com.mpfthprblmtq.moose.objects.ArtworkLocation;
+import com.mpfthprblmtq.moose.objects.AudioInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// class MP3HeaderUtils
+public class MP3HeaderUtils {
+
+    // id3v2 header constants
+    public static final int ID3V2_HEADER_LENGTH = 10;
+    public static final int ID3V2_FOOTER_LENGTH = 10;
+    private static final int ID3V2_FOOTER_BIT = 0x10;
+    private static final int ID3V1_TAG_LENGTH = 128;
+    private static final int UNSYNCHRONISATION_BIT = 0x80;
+    private static final int EXTENDED_HEADER_BIT = 0x40;
+
+    // id3v2.3/2.4 frame constants, the format flags are the ones that change how the frame data is stored
+    private static final int FRAME_HEADER_LENGTH = 10;
+    private static final int V23_FRAME_FORMAT_FLAGS = 0xE0;
+    private static final int V24_FRAME_FORMAT_FLAGS = 0x4F;
+
+    // how much of the tag we read up front when skipping the artwork, the frames before the artwork are usually in here
+    private static final int TAG_PREFIX_LENGTH = 8 * 1024;
+
+    // how much of the artwork frame we read to find the mime type
+    private static final int MIME_TYPE_SEARCH_LENGTH = 64;
+
+    // how much of the file we're willing to search through to find the first frame
+    private static final int FRAME_SEARCH_LENGTH = 64 * 1024;
+
+    // how many spots through a file without a vbr header we check, and how much at each, before calling it cbr
+    private static final int CBR_SAMPLE_COUNT = 8;
+    private static final int CBR_SAMPLE_LENGTH = 8 * 1024;
+
+    // xing/info and vbri header constants
+    private static final int XING_FRAMES_FLAG = 0x01;
+    private static final int XING_BYTES_FLAG = 0x02;
+    private static final int VBRI_OFFSET = 36;
+
+    /**
+     * Reads the ID3v2 tag from the start of the file.  Only the 10 byte header and the tag region it describes are
+     * read, the audio data is never touched.
+     * @param channel the channel of the mp3 file to read from
+     * @return the parsed tag, or null if the file doesn't start with an ID3v2 tag
+     */
+    public static ID3v2 readID3v2Tag(FileChannel channel)
+            throws IOException, UnsupportedTagException, InvalidDataException {
+        byte[] tagBytes = readID3v2TagRegion(channel);
+        if (tagBytes == null) {
+            return null;
+        }
+        try {
+            return ID3v2TagFactory.createTag(tagBytes);
+        } catch (NoSuchTagException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the ID3v2 tag from the start of the file without reading the artwork.  The frames are walked one at a
+     * time, and everything but the first APIC frame is parsed like normal.  For the APIC frame only its position,
+     * length and mime type are recorded, so the artwork can be read with readArtwork if it's ever needed.  Tags that
+     * can't be walked frame by frame (v2.2, unsynchronised or with an extended header) are read in full instead.
+     * The tag returned is missing its artwork, so it shouldn't be written back to the file.
+     * @param channel the channel of the mp3 file to read from
+     * @return the parsed tag and where its artwork is, or null if the file doesn't start with an ID3v2 tag
+     */
+    public static TagWithoutArtwork readID3v2TagWithoutArtwork(FileChannel channel)
+            throws IOException, UnsupportedTagException, InvalidDataException {
+        // read the header first to see how big the tag is
+        ByteBuffer header = ByteBuffer.allocate(ID3V2_HEADER_LENGTH);
+        if (readFully(channel, header, 0) < ID3V2_HEADER_LENGTH) {
+            return null;
+        }
+        byte[] headerBytes = header.array();
+        int tagLength = getID3v2TagLength(headerBytes);
+        if (tagLength <= 0 || tagLength > channel.size()) {
+            return null;
+        }
+        int version = headerBytes[3];
+        if (version < 3 || (headerBytes[5] & (UNSYNCHRONISATION_BIT | EXTENDED_HEADER_BIT)) != 0) {
+            return getTagWithArtwork(channel);
+        }
+
+        // read the start of the tag in one go, then walk the frames up to the padding or the footer
+        int end = ID3V2_HEADER_LENGTH
+                + BufferTools.unpackSynchsafeInteger(headerBytes[6], headerBytes[7], headerBytes[8], headerBytes[9]);
+        ByteBuffer prefix = ByteBuffer.allocate(Math.min(end, TAG_PREFIX_LENGTH));
+        int prefixLength = readFully(channel, prefix, 0);
+        int formatFlags = version == 4 ? V24_FRAME_FORMAT_FLAGS : V23_FRAME_FORMAT_FLAGS;
+
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        ArtworkLocation artworkLocation = null;
+        int position = ID3V2_HEADER_LENGTH;
+        while (position + FRAME_HEADER_LENGTH <= end) {
+            byte[] frameHeader = readRegion(channel, prefix.array(), prefixLength, position, FRAME_HEADER_LENGTH);
+            if (frameHeader[0] == 0) {
+                // padding
+                break;
+            }
+            int frameLength = version == 4 ?
+                    BufferTools.unpackSynchsafeInteger(frameHeader[4], frameHeader[5], frameHeader[6], frameHeader[7]) :
+                    getInt(frameHeader, 4);
+            int frameDataPosition = position + FRAME_HEADER_LENGTH;
+            if (frameLength < 0 || frameDataPosition + frameLength > end) {
+                // broken frame, let mp3agic sort it out
+                return getTagWithArtwork(channel);
+            }
+
+            // skip the artwork if it's stored plainly, otherwise keep it and let mp3agic decode it
+            if (artworkLocation == null && matches(frameHeader, 0, "APIC") && (frameHeader[9] & formatFlags) == 0) {
+                byte[] start = readRegion(channel, prefix.array(), prefixLength, frameDataPosition,
+                        Math.min(frameLength, MIME_TYPE_SEARCH_LENGTH));
+                artworkLocation = new ArtworkLocation(frameDataPosition, frameLength, getMimeType(start));
+            } else {
+                frames.write(frameHeader);
+                frames.write(readRegion(channel, prefix.array(), prefixLength, frameDataPosition, frameLength));
+            }
+            position = frameDataPosition + frameLength;
+        }
+
+        // put the frames we kept back together as a tag without padding or a footer
+        byte[] frameBytes = frames.toByteArray();
+        byte[] tagBytes = new byte[ID3V2_HEADER_LENGTH + frameBytes.length];
+        System.arraycopy(headerBytes, 0, tagBytes, 0, ID3V2_HEADER_LENGTH);
+        tagBytes[5] &= ~ID3V2_FOOTER_BIT;
+        BufferTools.packSynchsafeInteger(frameBytes.length, tagBytes, 6);
+        System.arraycopy(frameBytes, 0, tagBytes, ID3V2_HEADER_LENGTH, frameBytes.length);
+        try {
+            return new TagWithoutArtwork(ID3v2TagFactory.createTag(tagBytes), artworkLocation);
+        } catch (NoSuchTagException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the whole tag, artwork and all, for when the artwork can't be skipped
+     * @param channel the channel of the mp3 file to read from
+     * @return the parsed tag with no artwork location, or null if the file doesn't start with an ID3v2 tag
+     */
+    private static TagWithoutArtwork getTagWithArtwork(FileChannel channel)
+            throws IOException, UnsupportedTagException, InvalidDataException {
+        ID3v2 tag = readID3v2Tag(channel);
+        return tag != null ? new TagWithoutArtwork(tag, null) : null;
+    }
+
+    /**
+     * Reads the artwork recorded by readID3v2TagWithoutArtwork.  If the frame isn't where it was recorded anymore (the
+     * tag was rewritten since), the whole tag is read again to get the artwork.
+     * @param channel the channel of the mp3 file to read from
+     * @param location where the artwork was recorded
+     * @return the artwork bytes, or null if the file doesn't have artwork anymore
+     */
+    public static byte[] readArtwork(FileChannel channel, ArtworkLocation location)
+            throws IOException, UnsupportedTagException, InvalidDataException {
+        long framePosition = location.getOffset() - FRAME_HEADER_LENGTH;
+        if (framePosition >= ID3V2_HEADER_LENGTH && location.getOffset() + location.getLength() <= channel.size()) {
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_LENGTH + location.getLength());
+            readFully(channel, frame, framePosition);
+            byte[] bytes = frame.array();
+
+            // the size could be synchsafe or not depending on the version, either one matching is good enough
+            int length = location.getLength();
+            if (matches(bytes, 0, "APIC") && (getInt(bytes, 4) == length
+                    || BufferTools.unpackSynchsafeInteger(bytes[4], bytes[5], bytes[6], bytes[7]) == length)) {
+                return new ID3v2PictureFrameData(false,
+                        Arrays.copyOfRange(bytes, FRAME_HEADER_LENGTH, bytes.length)).getImageData();
+            }
+        }
+
+        // the tag has changed since the location was recorded
+        ID3v2 tag = readID3v2Tag(channel);
+        return tag != null ? tag.getAlbumImage() : null;
+    }
+
+    /**
+     * Gets a region of the file, from the prefix that was already read if it's in there, otherwise from the channel
+     * @param channel the channel to read from
+     * @param prefix the bytes already read from the start of the file
+     * @param prefixLength how many of the prefix bytes are valid
+     * @param position the position of the region in the file
+     * @param length the length of the region
+     * @return the bytes of the region
+     */
+    private static byte[] readRegion(FileChannel channel, byte[] prefix, int prefixLength, int position, int length)
+            throws IOException {
+        if (position + length <= prefixLength) {
+            return Arrays.copyOfRange(prefix, position, position + length);
+        }
+        ByteBuffer region = ByteBuffer.allocate(length);
+        if (readFully(channel, region, position) < length) {
+            throw new EOFException("File ended before the end of the ID3v2 tag");
+        }
+        return region.array();
+    }
+
+    /**
+     * Gets the mime type from the start of an APIC frame's data, the text encoding byte followed by the null
+     * terminated mime type
+     * @param bytes the start of the frame data
+     * @return the mime type, or null if there isn't a terminated one
+     */
+    private static String getMimeType(byte[] bytes) {
+        for (int i = 1; i < bytes.length; i++) {
+            if (bytes[i] == 0) {
+                return new String(bytes, 1, i - 1, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the raw bytes of the ID3v2 tag at the start of the file, including the header (and footer if there is one)
+     * @param channel the channel of the mp3 file to read from
+     * @return the tag bytes, or null if the file doesn't start with an ID3v2 tag
+     */
+    public static byte[] readID3v2TagRegion(FileChannel channel) throws IOException {
+        // read the header first to see how big the tag is
+        ByteBuffer header = ByteBuffer.allocate(ID3V2_HEADER_LENGTH);
+        if (readFully(channel, header, 0) < ID3V2_HEADER_LENGTH) {
+            return null;
+        }
+        int tagLength = getID3v2TagLength(header.array());
+        if (tagLength <= 0 || tagLength > channel.size()) {
+            return null;
+        }
+
+        // then read just the tag region
+        ByteBuffer tag = ByteBuffer.allocate(tagLength);
+        tag.put(header.array());
+        if (readFully(channel, tag, ID3V2_HEADER_LENGTH) < tagLength - ID3V2_HEADER_LENGTH) {
+            throw new EOFException("File ended before the end of the ID3v2 tag");
+        }
+        return tag.array();
+    }
+
+    /**
+     * Gets the full length of the ID3v2 tag described by the given header, including the header and the footer
+     * @param header the first 10 bytes of the file
+     * @return the length of the tag in bytes, or 0 if the header isn't an ID3v2 header
+     */
+    public static int getID3v2TagLength(byte[] header) {
+        if (header.length < ID3V2_HEADER_LENGTH
+                || header[0] != 'I' || header[1] != 'D' || header[2] != '3'
+                || header[3] < 2 || header[3] > 4) {
+            return 0;
+        }
+
+        // the size is a synchsafe integer that doesn't include the header or footer
+        int size = BufferTools.unpackSynchsafeInteger(header[6], header[7], header[8], header[9]);
+        int length = ID3V2_HEADER_LENGTH + size;
+        if (header[3] == 4 && (header[5] & ID3V2_FOOTER_BIT) != 0) {
+            length += ID3V2_FOOTER_LENGTH;
+        }
+        return length;
+    }
+
+    /**
+     * Writes the given ID3v2 tag to the start of the file.  If the new tag fits in the space the existing tag takes up
+     * (padding included), only the tag region is overwritten and whatever is left over becomes padding.  Otherwise the
+     * file is copied with the new tag and paddingReserve bytes of padding in front of the audio, and the copy replaces
+     * the original.
+     * @param file the mp3 file to write the tag to
+     * @param tag the tag to write
+     * @param paddingReserve the amount of padding to leave after the tag if the file has to be copied
+     * @return true if the tag was written in place, false if the file had to be copied
+     */
+    public static boolean writeID3v2Tag(File file, ID3v2 tag, int paddingReserve) throws IOException, NotSupportedException {
+        // serialize the tag without any padding or footer, we'll handle the padding ourselves
+        tag.setPadding(false);
+        tag.setFooter(false);
+        byte[] tagBytes = tag.toBytes();
+
+        File tempFile = new File(file.getAbsolutePath().replace(".mp3", "_.mp3"));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(ID3V2_HEADER_LENGTH);
+            readFully(channel, header, 0);
+            int existingLength = getID3v2TagLength(header.array());
+            if (existingLength > channel.size()) {
+                throw new EOFException("File ended before the end of the ID3v2 tag");
+            }
+
+            // new tag fits in the old one, just overwrite the tag region
+            if (existingLength > 0 && tagBytes.length <= existingLength) {
+                writeFully(channel, ByteBuffer.wrap(getPaddedTag(tagBytes, existingLength)), 0);
+                return true;
+            }
+
+            // otherwise copy the audio after a new tag with some room to grow
+            try (FileChannel out = FileChannel.open(tempFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                byte[] paddedTag = getPaddedTag(tagBytes, tagBytes.length + Math.max(paddingReserve, 0));
+                writeFully(out, ByteBuffer.wrap(paddedTag), 0);
+                out.position(paddedTag.length);
+                long position = existingLength;
+                while (position < channel.size()) {
+                    position += channel.transferTo(position, channel.size() - position, out);
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(tempFile.toPath());
+                throw e;
+            }
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return false;
+    }
+
+    /**
+     * Pads a serialized tag with zeros out to the given length and updates the size in its header to match
+     * @param tagBytes the serialized tag, without padding or a footer
+     * @param length the full length the tag should take up, header included
+     * @return the padded tag
+     */
+    private static byte[] getPaddedTag(byte[] tagBytes, int length) {
+        byte[] padded = new byte[length];
+        System.arraycopy(tagBytes, 0, padded, 0, tagBytes.length);
+        padded[5] &= ~ID3V2_FOOTER_BIT;
+        BufferTools.packSynchsafeInteger(length - ID3V2_HEADER_LENGTH, padded, 6);
+        return padded;
+    }
+
+    /**
+     * Writes the whole buffer to the channel at the given position
+     * @param channel the channel to write to
+     * @param buffer the buffer to write
+     * @param position the position in the file to start writing at
+     */
+    public static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads from the channel at the given position until the buffer is full or the end of the file is reached
+     * @param channel the channel to read from
+     * @param buffer the buffer to fill
+     * @param position the position in the file to start reading from
+     * @return the number of bytes read
+     */
+    public static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Estimates the audio information of an mp3 file from its headers instead of scanning every frame.  Reads the
+     * first audio frame header after the ID3v2 tag along with the Xing/Info or VBRI header if there is one.  Files
+     * without a VBR header are only treated as CBR if every frame in samples taken throughout the file has the same
+     * bitrate as the first one.
+     * @param channel the channel of the mp3 file to read from
+     * @return the audio info, or null if it can't be worked out from the headers and the file needs a full scan
+     */
+    public static AudioInfo readAudioInfo(FileChannel channel) throws IOException {
+        // audio starts right after the id3v2 tag
+        ByteBuffer header = ByteBuffer.allocate(ID3V2_HEADER_LENGTH);
+        readFully(channel, header, 0);
+        long audioStart = getID3v2TagLength(header.array());
+
+        // audio ends right before the id3v1 tag
+        long audioEnd = channel.size();
+        if (audioEnd - audioStart > ID3V1_TAG_LENGTH) {
+            ByteBuffer id3v1 = ByteBuffer.allocate(3);
+            readFully(channel, id3v1, audioEnd - ID3V1_TAG_LENGTH);
+            if (id3v1.get(0) == 'T' && id3v1.get(1) == 'A' && id3v1.get(2) == 'G') {
+                audioEnd -= ID3V1_TAG_LENGTH;
+            }
+        }
+
+        if (audioStart >= audioEnd) {
+            return null;
+        }
+
+        // find the first frame
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(FRAME_SEARCH_LENGTH, audioEnd - audioStart));
+        readFully(channel, buffer, audioStart);
+        byte[] bytes = buffer.array();
+        int frameOffset = findFrame(bytes, 0);
+        if (frameOffset < 0) {
+            return null;
+        }
+        MpegFrame frame = getFrame(bytes, frameOffset);
+        if (frame == null) {
+            return null;
+        }
+        int sampleRate = frame.getSampleRate();
+        int samplesPerFrame = getSamplesPerFrame(frame);
+
+        // check for a vbr header in the first frame
+        long frameCount = -1;
+        long audioBytes = audioEnd - audioStart - frameOffset;
+        boolean cbr = false;
+        int xingOffset = frameOffset + 4 + getSideInfoLength(frame);
+        if (matches(bytes, xingOffset, "Xing") || matches(bytes, xingOffset, "Info")) {
+            cbr = matches(bytes, xingOffset, "Info");
+            int flags = getInt(bytes, xingOffset + 4);
+            int position = xingOffset + 8;
+            if ((flags & XING_FRAMES_FLAG) != 0) {
+                frameCount = getInt(bytes, position) & 0xFFFFFFFFL;
+                position += 4;
+            }
+            if ((flags & XING_BYTES_FLAG) != 0 && getInt(bytes, position) > 0) {
+                audioBytes = getInt(bytes, position) & 0xFFFFFFFFL;
+            }
+        } else if (matches(bytes, frameOffset + VBRI_OFFSET, "VBRI")) {
+            int position = frameOffset + VBRI_OFFSET + 10;
+            if (getInt(bytes, position) > 0) {
+                audioBytes = getInt(bytes, position) & 0xFFFFFFFFL;
+            }
+            frameCount = getInt(bytes, position + 4) & 0xFFFFFFFFL;
+        } else {
+            // no vbr header, so make sure this actually looks like a cbr file before estimating from the first frame
+            if (!hasSameBitrateThroughout(channel, audioStart, audioEnd, frame.getBitrate())) {
+                return null;
+            }
+            cbr = true;
+        }
+
+        // work out the length and bitrate
+        if (frameCount > 0 && sampleRate > 0) {
+            double seconds = (double) frameCount * samplesPerFrame / sampleRate;
+            int bitrate = cbr ? frame.getBitrate() : (int) Math.round(audioBytes * 8 / seconds / 1000);
+            return new AudioInfo(bitrate, sampleRate, Math.round(seconds));
+        } else if (cbr && frame.getBitrate() > 0) {
+            double seconds = audioBytes * 8.0 / (frame.getBitrate() * 1000L);
+            return new AudioInfo(frame.getBitrate(), sampleRate, Math.round(seconds));
+        }
+        return null;
+    }
+
+    /**
+     * Finds the offset of the first valid mpeg frame header in the given bytes, where the frame after it also starts
+     * with a valid header (to avoid false syncs in junk data)
+     * @param bytes the bytes to search
+     * @param start where to start searching
+     * @return the offset of the frame, or -1 if one wasn't found
+     */
+    private static int findFrame(byte[] bytes, int start) {
+        for (int i = start; i < bytes.length - 4; i++) {
+            if ((bytes[i] & 0xFF) != 0xFF || (bytes[i + 1] & 0xE0) != 0xE0) {
+                continue;
+            }
+            MpegFrame frame = getFrame(bytes, i);
+            if (frame == null) {
+                continue;
+            }
+            int next = i + frame.getLengthInBytes();
+            if (next + 4 > bytes.length || getFrame(bytes, next) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if every frame in samples taken at even spots through the audio has the given bitrate.  Samples near the
+     * end of a short file without a frame in them are skipped, anywhere else they fail the check.
+     * @param channel the channel to read from
+     * @param audioStart the start of the audio data
+     * @param audioEnd the end of the audio data
+     * @param bitrate the bitrate to compare against
+     * @return the result of the check
+     */
+    private static boolean hasSameBitrateThroughout(FileChannel channel, long audioStart, long audioEnd, int bitrate)
+            throws IOException {
+        for (int i = 1; i <= CBR_SAMPLE_COUNT; i++) {
+            long position = audioStart + (audioEnd - audioStart) * i / (CBR_SAMPLE_COUNT + 1);
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(CBR_SAMPLE_LENGTH, audioEnd - position));
+            readFully(channel, buffer, position);
+            byte[] bytes = buffer.array();
+            int offset = findFrame(bytes, 0);
+            if (offset < 0) {
+                if (bytes.length < CBR_SAMPLE_LENGTH) {
+                    continue;
+                }
+                return false;
+            }
+
+            // walk every whole frame in the sample
+            MpegFrame frame = getFrame(bytes, offset);
+            while (frame != null) {
+                if (frame.getBitrate() != bitrate) {
+                    return false;
+                }
+                offset += frame.getLengthInBytes();
+                frame = getFrame(bytes, offset);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets an mpeg frame from the 4 header bytes at the given offset
+     * @param bytes the bytes to read from
+     * @param offset the offset of the header
+     * @return the frame, or null if the bytes aren't a valid frame header
+     */
+    private static MpegFrame getFrame(byte[] bytes, int offset) {
+        if (offset < 0 || offset + 4 > bytes.length) {
+            return null;
+        }
+        try {
+            MpegFrame frame = new MpegFrame(bytes[offset], bytes[offset + 1], bytes[offset + 2], bytes[offset + 3]);
+            return frame.getLengthInBytes() > 0 ? frame : null;
+        } catch (InvalidDataException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the number of samples in a frame, based on the frame's version and layer
+     * @param frame the frame to check
+     * @return the number of samples
+     */
+    private static int getSamplesPerFrame(MpegFrame frame) {
+        if (MpegFrame.MPEG_LAYER_1.equals(frame.getLayer())) {
+            return 384;
+        } else if (MpegFrame.MPEG_LAYER_3.equals(frame.getLayer())
+                && !MpegFrame.MPEG_VERSION_1_0.equals(frame.getVersion())) {
+            return 576;
+        }
+        return 1152;
+    }
+
+    /**
+     * Gets the length of the side information after the frame header, which is where the xing/info header starts
+     * @param frame the frame to check
+     * @return the length of the side information
+     */
+    private static int getSideInfoLength(MpegFrame frame) {
+        boolean mono = MpegFrame.CHANNEL_MODE_MONO.equals(frame.getChannelMode());
+        if (MpegFrame.MPEG_VERSION_1_0.equals(frame.getVersion())) {
+            return mono ? 17 : 32;
+        }
+        return mono ? 9 : 17;
+    }
+
+    /**
+     * Checks if the bytes at the given offset match the given ascii string
+     */
+    private static boolean matches(byte[] bytes, int offset, String s) {
+        if (offset < 0 || offset + s.length() > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (bytes[offset + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets a big endian int from the bytes at the given offset, or 0 if there aren't enough bytes
+     */
+    private static int getInt(byte[] bytes, int offset) {
+        if (offset < 0 || offset + 4 > bytes.length) {
+            return 0;
+        }
+        return ByteBuffer.wrap(bytes, offset, 4).getInt();
+    }
+
+    // class TagWithoutArtwork, a tag read without its artwork and where the artwork is in the file
+    @Data
+    @AllArgsConstructor
+    public static class TagWithoutArtwork {
+        private ID3v2 tag;
+        private ArtworkLocation artworkLocation;   // null if the artwork is on the tag or there isn't any
+    }
+}
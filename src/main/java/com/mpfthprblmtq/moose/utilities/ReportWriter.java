@@ -0,0 +1,156 @@
+/*
+ *  Proj:   Moose
+ *  File:   ReportWriter.java
+ *  Desc:   Writes the results of an audit or cleanup analysis as a report, a titled section of file paths for each kind
+ *          of result.  Everything is streamed straight to the writer as plain text, CSV or JSON, so writing a report
+ *          takes the same memory no matter how many paths are in it.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.utilities;
+
+// imports
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+// class ReportWriter
+public class ReportWriter implements Closeable {
+
+    // the formats a report can be written in
+    public enum Format {
+        TEXT("txt"),
+        CSV("csv"),
+        JSON("json");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    // where the report goes
+    Writer writer;
+    Format format;
+    JsonGenerator json;
+
+    /**
+     * Creates a new ReportWriter and writes the start of the report
+     * @param writer the writer to write the report to
+     * @param format the format of the report
+     * @throws IOException if the writer can't be written to
+     */
+    public ReportWriter(Writer writer, Format format) throws IOException {
+        this.writer = writer;
+        this.format = format;
+        switch (format) {
+            case TEXT:
+                writer.write("\n");
+                break;
+            case CSV:
+                writer.write("section,path\n");
+                break;
+            case JSON:
+                json = new JsonFactory().createGenerator(writer);
+                json.useDefaultPrettyPrinter();
+                json.writeStartObject();
+                break;
+        }
+    }
+
+    /**
+     * Writes a whole section of the report
+     * @param title the title of the section
+     * @param paths the file paths in the section
+     * @throws IOException if the writer can't be written to
+     */
+    public void writeSection(String title, List<String> paths) throws IOException {
+        switch (format) {
+            case TEXT:
+                writer.write(" " + title + ":\n");
+                for (String path : paths) {
+                    writer.write(" \t");
+                    writer.write(path);
+                    writer.write(" \n");
+                }
+                writer.write("\n");
+                break;
+            case CSV:
+                String section = escapeCsv(title);
+                for (String path : paths) {
+                    writer.write(section);
+                    writer.write(',');
+                    writer.write(escapeCsv(path));
+                    writer.write('\n');
+                }
+                break;
+            case JSON:
+                json.writeArrayFieldStart(title);
+                for (String path : paths) {
+                    json.writeString(path);
+                }
+                json.writeEndArray();
+                break;
+        }
+    }
+
+    /**
+     * Writes the end of the report and closes the writer
+     * @throws IOException if the writer can't be written to
+     */
+    @Override
+    public void close() throws IOException {
+        if (json != null) {
+            json.writeEndObject();
+            json.close();
+        }
+        writer.close();
+    }
+
+    /**
+     * Writes a report to a file, to a temp file first so a report that fails partway doesn't replace a good one
+     * @param file the file to write the report to
+     * @param format the format of the report
+     * @param sections the sections of the report, titles to file paths, in the order they should be written
+     * @throws IOException if the report couldn't be written
+     */
+    public static void writeReport(File file, Format format, Map<String, List<String>> sections) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8);
+             ReportWriter reportWriter = new ReportWriter(bufferedWriter, format)) {
+            for (Map.Entry<String, List<String>> section : sections.entrySet()) {
+                reportWriter.writeSection(section.getKey(), section.getValue());
+            }
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Quotes a value for CSV if it needs it
+     * @param value the value
+     * @return the value, quoted if it has a comma, quote or line break in it
+     */
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *  Proj:   Moose
+ *  File:   SongTableModel.java
+ *  Desc:   The specific table model we use for the main table.  Sets up the column types and editable columns, can
+ *          add or remove a batch of rows with a single table event, and keeps a map of song indices to model rows up to
+ *          date as rows change.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.utilities.viewUtils;
+
+// imports
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.DefaultTableModel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+// class SongTableModel
+public class SongTableModel extends DefaultTableModel {
+
+    // column with the album art thumbnail
+    public static final int ARTWORK_COLUMN = 11;
+
+    // hidden column with the song's index
+    public static final int INDEX_COLUMN = 12;
+
+    // map of song indices to the model row they're on
+    // not final since the super constructor fires table events before this is initialized
+    private volatile Map<Integer, Integer> modelRows = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("rawtypes")
+    @Override   // returns a certain type of class based on the column index
+    public Class getColumnClass(int column) {
+        if (column == ARTWORK_COLUMN || column == 0) {
+            return ImageIcon.class;
+        } else if (column == INDEX_COLUMN) {
+            return Integer.class;
+        } else {
+            return Object.class;
+        }
+    }
+
+    @Override   // returns if the cell is editable based on the column index
+    public boolean isCellEditable(int row, int column) {
+        return !(column == ARTWORK_COLUMN || column == 0);
+    }
+
+    /**
+     * Adds a batch of rows to the end of the model, firing only one insert event for all of them instead of one for
+     * each row like addRow does
+     * @param rows the rows to add
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})    // for the raw data vector
+    public void addRows(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int firstRow = getRowCount();
+        for (Object[] row : rows) {
+            Vector<Object> rowVector = convertToVector(row);
+            rowVector.setSize(getColumnCount());
+            ((Vector) dataVector).add(rowVector);
+        }
+        fireTableRowsInserted(firstRow, getRowCount() - 1);
+    }
+
+    /**
+     * Removes a batch of rows from the model in one pass, updating the model rows map as it goes, and fires only one
+     * event for all of them instead of one for each row like removeRow does
+     * @param rows the model rows to remove
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})    // for the raw data vector
+    public void removeRows(int[] rows) {
+        if (rows.length == 0) {
+            return;
+        }
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+
+        // keep every row that isn't removed, moving it up over the removed ones
+        Vector<Object> kept = new Vector<>(getRowCount() - sorted.length);
+        int next = 0;
+        for (int row = 0; row < getRowCount(); row++) {
+            int index = getIndex(row);
+            if (next < sorted.length && sorted[next] == row) {
+                next++;
+                modelRows.remove(index);
+            } else {
+                if (next > 0 && index != -1) {
+                    modelRows.put(index, kept.size());
+                }
+                kept.add(dataVector.get(row));
+            }
+        }
+        ((Vector) dataVector).clear();
+        ((Vector) dataVector).addAll(kept);
+
+        // the map's already up to date, so skip updating it again and just tell the listeners
+        super.fireTableChanged(new TableModelEvent(this));
+    }
+
+    /**
+     * Gets the index of the song on a model row
+     * @param modelRow the row in the model
+     * @return the index of the song, or -1 if the row doesn't have one
+     */
+    public int getIndex(int modelRow) {
+        Object value = getValueAt(modelRow, INDEX_COLUMN);
+        return value instanceof Integer ? (Integer) value : -1;
+    }
+
+    /**
+     * Gets the model row of a song
+     * @param index the index of the song
+     * @return the model row, or -1 if the song isn't in the model
+     */
+    public int getModelRow(int index) {
+        return modelRows.getOrDefault(index, -1);
+    }
+
+    @Override   // keeps the model rows up to date before any listeners (the table and sorter) hear about the change
+    public void fireTableChanged(TableModelEvent e) {
+        if (modelRows != null) {
+            updateModelRows(e);
+        }
+        super.fireTableChanged(e);
+    }
+
+    /**
+     * Updates the model rows map based on what changed in the model.  Inserted and removed rows are added to or dropped
+     * from the map and the rows after them are shifted, updates to other columns are ignored, and only a change to the
+     * whole table or the index column rebuilds it.
+     * @param e the event describing the change
+     */
+    private void updateModelRows(TableModelEvent e) {
+        int firstRow = e.getFirstRow();
+        int lastRow = e.getLastRow();
+        int count = lastRow - firstRow + 1;
+        if (e.getType() == TableModelEvent.INSERT) {
+            // shift the rows after the new ones down, then add the new ones
+            if (firstRow < getRowCount() - count) {
+                modelRows.replaceAll((index, row) -> row >= firstRow ? row + count : row);
+            }
+            for (int row = firstRow; row <= lastRow; row++) {
+                putModelRow(modelRows, row);
+            }
+        } else if (e.getType() == TableModelEvent.DELETE) {
+            // drop the removed rows and shift the rows after them up
+            if (getRowCount() == 0) {
+                modelRows.clear();
+            } else {
+                modelRows.values().removeIf(row -> row >= firstRow && row <= lastRow);
+                modelRows.replaceAll((index, row) -> row > lastRow ? row - count : row);
+            }
+        } else if (e.getType() == TableModelEvent.UPDATE && firstRow != TableModelEvent.HEADER_ROW
+                && e.getColumn() != TableModelEvent.ALL_COLUMNS && e.getColumn() != INDEX_COLUMN) {
+            // a regular cell changed, doesn't affect the indices
+        } else {
+            // the whole table changed, or the indices themselves did
+            Map<Integer, Integer> rebuilt = new ConcurrentHashMap<>();
+            for (int row = 0; row < getRowCount(); row++) {
+                putModelRow(rebuilt, row);
+            }
+            modelRows = rebuilt;
+        }
+    }
+
+    /**
+     * Puts a model row in the given map keyed by the index of the song on that row
+     * @param map the map to put it in
+     * @param row the model row
+     */
+    private void putModelRow(Map<Integer, Integer> map, int row) {
+        if (getColumnCount() > INDEX_COLUMN) {
+            int index = getIndex(row);
+            if (index != -1) {
+                map.put(index, row);
+            }
+        }
+    }
+}
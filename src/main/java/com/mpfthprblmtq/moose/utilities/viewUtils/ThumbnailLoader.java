@@ -0,0 +1,200 @@
+/*
+ *  Proj:   Moose
+ *  File:   ThumbnailLoader.java
+ *  Desc:   Loads the album art thumbnails for the main table in the background.  Rows are added with a placeholder in
+ *          the album art column, and only the rows in the table's visible area get their thumbnails built, top to
+ *          bottom.  Requests for rows that get scrolled out of view before they're built are cancelled.
+ *
+ *  Copyright Pat Ripley (mpfthprblmtq) 2018-2023
+ */
+
+package com.mpfthprblmtq.moose.utilities.viewUtils;
+
+// imports
+import com.mpfthprblmtq.commons.logger.Logger;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.controllers.SongController;
+import com.mpfthprblmtq.moose.objects.Song;
+import com.mpfthprblmtq.moose.utilities.ImageUtils;
+
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+// class ThumbnailLoader
+public class ThumbnailLoader {
+
+    // size of the thumbnails in the table
+    public static final int THUMBNAIL_SIZE = 100;
+
+    // what's in the artwork column until the thumbnail is built
+    public static final Icon PLACEHOLDER = new ImageIcon(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+
+    // how long to wait after the last scroll or table change before requesting thumbnails
+    private static final int REQUEST_DELAY = 50;
+
+    // decoding and scaling is cpu bound, so leave some cores for everything else
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "moose-thumbnail");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // logger object
+    Logger logger = Moose.getLogger();
+
+    // the table, the scroll pane it's in, and where the songs come from
+    JTable table;
+    JScrollPane scrollPane;
+    SongController songController;
+
+    // thumbnails being built, keyed by song index, only touched on the EDT
+    Map<Integer, Future<?>> pending = new HashMap<>();
+
+    // coalesces scrolling and table changes into one request
+    Timer requestTimer;
+
+    /**
+     * Creates a new ThumbnailLoader and starts listening to the table and its scroll pane
+     * @param table the table to load thumbnails for
+     * @param scrollPane the scroll pane the table is in
+     * @param songController the controller with the songs on the table
+     */
+    public ThumbnailLoader(JTable table, JScrollPane scrollPane, SongController songController) {
+        this.table = table;
+        this.scrollPane = scrollPane;
+        this.songController = songController;
+
+        requestTimer = new Timer(REQUEST_DELAY, e -> requestVisibleThumbnails());
+        requestTimer.setRepeats(false);
+        scrollPane.getViewport().addChangeListener(e -> requestTimer.restart());
+        table.getModel().addTableModelListener(e -> {
+            // the thumbnails we put in the table don't need another request
+            if (e.getType() != TableModelEvent.UPDATE || e.getColumn() != SongTableModel.ARTWORK_COLUMN) {
+                requestTimer.restart();
+            }
+        });
+    }
+
+    /**
+     * Requests thumbnails for the rows in the visible area that still have the placeholder, from the top of the view
+     * down, and cancels the requests for rows that aren't visible anymore
+     */
+    private void requestVisibleThumbnails() {
+        SongTableModel model = (SongTableModel) table.getModel();
+        Rectangle visible = scrollPane.getViewport().getViewRect();
+        int firstRow = table.rowAtPoint(new Point(0, visible.y));
+        int lastRow = table.rowAtPoint(new Point(0, visible.y + visible.height - 1));
+        if (firstRow == -1) {
+            cancelAllBut(new HashSet<>());
+            return;
+        }
+        if (lastRow == -1) {
+            lastRow = table.getRowCount() - 1;
+        }
+
+        // figure out which songs are visible and still need thumbnails
+        Map<Integer, Song> needed = new LinkedHashMap<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            int modelRow = table.convertRowIndexToModel(row);
+            int index = model.getIndex(modelRow);
+            if (index != -1 && model.getValueAt(modelRow, SongTableModel.ARTWORK_COLUMN) == PLACEHOLDER) {
+                needed.put(index, songController.getSongs().get(index));
+            }
+        }
+
+        // cancel anything that scrolled out of view first so the new requests don't wait behind it
+        cancelAllBut(needed.keySet());
+        for (Map.Entry<Integer, Song> entry : needed.entrySet()) {
+            if (entry.getValue() != null && !pending.containsKey(entry.getKey())) {
+                int index = entry.getKey();
+                Song song = entry.getValue();
+                FutureTask<Icon> task = new FutureTask<>(() -> buildThumbnail(song)) {
+                    @Override
+                    protected void done() {
+                        if (!isCancelled()) {
+                            SwingUtilities.invokeLater(() -> loadThumbnail(index, song, this));
+                        }
+                    }
+                };
+                pending.put(index, task);
+                executor.execute(task);
+            }
+        }
+    }
+
+    /**
+     * Cancels every pending thumbnail, for when the table is cleared
+     */
+    public void clear() {
+        cancelAllBut(Collections.emptySet());
+    }
+
+    /**
+     * Builds the thumbnail for a song
+     * @param song the song to build the thumbnail for
+     * @return the thumbnail, or null if the song has no artwork or it couldn't be read
+     */
+    private Icon buildThumbnail(Song song) {
+        try {
+            return ImageUtils.getScaledImage(song.getArtwork_bytes(), song.getArtworkHash(), THUMBNAIL_SIZE);
+        } catch (Exception e) {
+            logger.logError("Exception while building the thumbnail for " + song.getFile().getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Puts a built thumbnail in the song's row if the request is still pending, the row still has the placeholder and
+     * the song is still on the table (the table may have been reloaded in the meantime, reusing the index).  Should be
+     * called on the EDT.
+     * @param index the index of the song
+     * @param song the song the thumbnail was built for
+     * @param task the finished request, only its own entry is removed since the index may have been requested again
+     */
+    private void loadThumbnail(int index, Song song, FutureTask<Icon> task) {
+        if (!pending.remove(index, task) || songController.getSongs().get(index) != song) {
+            return;
+        }
+        Icon thumbnail;
+        try {
+            thumbnail = task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            thumbnail = null;
+        }
+        SongTableModel model = (SongTableModel) table.getModel();
+        int modelRow = model.getModelRow(index);
+        if (modelRow != -1 && model.getValueAt(modelRow, SongTableModel.ARTWORK_COLUMN) == PLACEHOLDER) {
+            model.setValueAt(thumbnail, modelRow, SongTableModel.ARTWORK_COLUMN);
+        }
+    }
+
+    /**
+     * Cancels the pending thumbnails for every song but the given ones
+     * @param keep the indices of the songs to keep
+     */
+    private void cancelAllBut(Set<Integer> keep) {
+        Iterator<Map.Entry<Integer, Future<?>>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Future<?>> entry = iterator.next();
+            if (!keep.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -11,7 +11,6 @@ package com.mpfthprblmtq.moose.utilities.viewUtils;
 // imports
 import com.mpfthprblmtq.commons.logger.Logger;
 import com.mpfthprblmtq.commons.utils.CollectionUtils;
-import com.mpfthprblmtq.commons.utils.FileUtils;
 import com.mpfthprblmtq.commons.utils.StringUtils;
 import com.mpfthprblmtq.moose.Moose;
 import com.mpfthprblmtq.moose.controllers.SongController;
@@ -46,22 +45,7 @@ public class ViewUtils {
      * @return a configured table model
      */
     public static DefaultTableModel getTableModel() {
-        return new DefaultTableModel() {
-            @SuppressWarnings("rawtypes")
-            @Override   // returns a certain type of class based on the column index
-            public Class getColumnClass(int column) {
-                if (column == 11 || column == 0) {
-                    return ImageIcon.class;
-                } else {
-                    return Object.class;
-                }
-            }
-
-            @Override   // returns if the cell is editable based on the column index
-            public boolean isCellEditable(int row, int column) {
-                return !(column == 11 || column == 0);
-            }
-        };
+        return new SongTableModel();
     }
 
     /**
@@ -120,7 +104,7 @@ public class ViewUtils {
                 int r = tcl.getRow();
                 int c = tcl.getColumn();
 
-                int index = Integer.parseInt(model.getValueAt(r, 12).toString());
+                int index = (Integer) model.getValueAt(r, SongTableModel.INDEX_COLUMN);
 
                 // switch to see what column changed, and do a task based on that
                 switch (c) {
@@ -360,18 +344,8 @@ public class ViewUtils {
         return new SwingWorker<>() {
             @Override
             protected Void doInBackground() {
-                // create an arraylist of files and traverse it
-                java.util.List<File> fileList = new ArrayList<>();
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        FileUtils.listFiles(file, fileList);
-                    } else {
-                        fileList.add(file);
-                    }
-                }
-
-                // sort the file list
-                fileList.sort(Comparator.comparing(File::getName));
+                // find all the files, sorted by name
+                List<File> fileList = Moose.getSongController().getImportService().discoverFiles(files);
 
                 // import them all
                 List<File> successfullyAddedFiles = Moose.getFrame().importFiles(fileList);
@@ -384,6 +358,9 @@ public class ViewUtils {
                     Moose.getSongController().checkForNewGenres(successfullyAddedFiles);
                 }
 
+                // save off the tag cache with everything we just read
+                Moose.getTagCacheService().writeCacheFile();
+
                 // update graphics
                 Moose.getFrame().setLoading(false);
 
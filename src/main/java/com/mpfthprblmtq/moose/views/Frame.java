@@ -23,9 +23,12 @@ import com.mpfthprblmtq.moose.services.AutocompleteService;
 import com.mpfthprblmtq.moose.utilities.Constants;
 import com.mpfthprblmtq.moose.utilities.IconUtils;
 import com.mpfthprblmtq.moose.utilities.ImageUtils;
+import com.mpfthprblmtq.moose.utilities.MP3FileUtils;
 import com.mpfthprblmtq.moose.utilities.viewUtils.AutoCompleteDocument;
 import com.mpfthprblmtq.moose.utilities.viewUtils.DialogUtils;
 import com.mpfthprblmtq.moose.utilities.viewUtils.FileDrop;
+import com.mpfthprblmtq.moose.utilities.viewUtils.SongTableModel;
+import com.mpfthprblmtq.moose.utilities.viewUtils.ThumbnailLoader;
 import com.mpfthprblmtq.moose.utilities.viewUtils.TableCellListener;
 import com.mpfthprblmtq.moose.utilities.viewUtils.ViewUtils;
 import com.mpfthprblmtq.moose.views.modals.InfoFrame;
@@ -42,9 +45,12 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.imageio.ImageIO;
@@ -65,11 +71,15 @@ public class Frame extends javax.swing.JFrame {
     // controller
     public SongController songController;
 
+    // builds the album art thumbnails for the visible rows
+    ThumbnailLoader thumbnailLoader;
+
     // some graphics fields
     ActionListener menuListener;        // listener for the popup menu objects
 
     int currentRow;     // keeps track of the current row
     int currentColumn;  // keeps track of the current column
+    int consoleStatusOffset = -1;   // keeps track of where the status line starts in the console
 
     // fields for the multPanel to check if the artwork has changed
     byte[] originalMultPanelArtwork;
@@ -103,40 +113,61 @@ public class Frame extends javax.swing.JFrame {
         if (SwingUtilities.isEventDispatchThread()) {
             initComponents();
             init();
-
-            // add the songs in the folder param to start
-            List<File> files = new ArrayList<>();
-            FileUtils.listFiles(folder, files);
-
-            if (!importFiles(files).isEmpty()) {
-                setActionsEnabled(true);
-                enableMultPanel(true);
-                updateMultiplePanelFields();
-                if (Moose.getSettings().getFeatures().get(Settings.CHECK_FOR_NEW_GENRES)) {
-                    songController.checkForNewGenres(files);
-                }
-            }
+            loadFolder(folder, Collections.emptyMap());
         } else {
             SwingUtilities.invokeLater(() -> {
                 initComponents();
                 init();
+                loadFolder(folder, Collections.emptyMap());
+            });
+        }
+    }
 
-                // add the songs in the folder param to start
-                List<File> files = new ArrayList<>();
-                FileUtils.listFiles(folder, files);
+    /**
+     * Adds the songs in a folder to the table
+     * @param folder the folder to load
+     * @param alreadyRead songs in the folder that were already read ahead, keyed by file
+     */
+    private void loadFolder(File folder, Map<File, Song> alreadyRead) {
+        List<File> files = new ArrayList<>();
+        FileUtils.listFiles(folder, files);
 
-                if (!importFiles(files).isEmpty()) {
-                    setActionsEnabled(true);
-                    enableMultPanel(true);
-                    updateMultiplePanelFields();
-                    if (Moose.getSettings().getFeatures().get(Settings.CHECK_FOR_NEW_GENRES)) {
-                        songController.checkForNewGenres(files);
-                    }
-                }
-            });
+        if (!importFiles(files, alreadyRead).isEmpty()) {
+            setActionsEnabled(true);
+            enableMultPanel(true);
+            updateMultiplePanelFields();
+            if (Moose.getSettings().getFeatures().get(Settings.CHECK_FOR_NEW_GENRES)) {
+                songController.checkForNewGenres(files);
+            }
         }
     }
 
+    /**
+     * Clears the table and reloads it with the songs in a folder.  Keeps the same table and song controller, so
+     * stepping through the albums in an audit only costs loading the album's rows.  Should be called on the EDT.
+     * @param folder the folder to load
+     * @param alreadyRead songs in the folder that were already read ahead, keyed by file, these aren't read again
+     */
+    public void reloadFolder(File folder, Map<File, Song> alreadyRead) {
+        clearTable();
+        loadFolder(folder, alreadyRead);
+    }
+
+    /**
+     * Removes every row from the table and every song from the song controller, without rebuilding anything.  Should be
+     * called on the EDT.
+     */
+    public void clearTable() {
+        if (table.isEditing()) {
+            table.getCellEditor().cancelCellEditing();
+        }
+        thumbnailLoader.clear();
+        songController.clear();
+        getModel().setRowCount(0);
+        enableMultPanel(false);
+        setActionsEnabled(false);
+    }
+
     public DefaultTableModel getModel() {
         return (DefaultTableModel) table.getModel();
     }
@@ -313,6 +344,9 @@ public class Frame extends javax.swing.JFrame {
         tableRowSorter.setComparator(TABLE_COLUMN_TRACK, ViewUtils.getTrackDiskNumberSorter());
         tableRowSorter.setComparator(TABLE_COLUMN_DISK, ViewUtils.getTrackDiskNumberSorter());
         table.setRowSorter(tableRowSorter);
+
+        // build the album art thumbnails in the background as rows scroll into view
+        thumbnailLoader = new ThumbnailLoader(table, tableSP, songController);
     }
 
     /**
@@ -320,11 +354,13 @@ public class Frame extends javax.swing.JFrame {
      * @param selectedRows the rows to remove
      */
     public void removeRows(int[] selectedRows) {
-        // traverse the array of selectedRows and delete them
-        for (int i = selectedRows.length - 1; i >= 0; i--) {
-            int row = table.convertRowIndexToModel(selectedRows[i]);    // get the row
-            getModel().removeRow(row);
+        // traverse the array of selectedRows, then delete them all at once
+        int[] modelRows = new int[selectedRows.length];
+        for (int i = 0; i < selectedRows.length; i++) {
+            modelRows[i] = table.convertRowIndexToModel(selectedRows[i]);   // get the row
+            songController.removeFromTable((File) getModel().getValueAt(modelRows[i], 1));
         }
+        ((SongTableModel) getModel()).removeRows(modelRows);
         // update some graphics
         enableMultPanel(false);
         setActionsEnabled(table.getRowCount() > 0);
@@ -357,6 +393,24 @@ public class Frame extends javax.swing.JFrame {
         console.append(s + StringUtils.NEW_LINE);
     }
 
+    /**
+     * Helper function to update a status line at the bottom of the UI console, replaces the last status line if there
+     * was one, so things like progress don't flood the console
+     * @param s the status to show
+     * @param finished if this is the last update for this status, the next status will go on a new line
+     */
+    public void updateConsoleStatus(String s, boolean finished) {
+        SwingUtilities.invokeLater(() -> {
+            if (consoleStatusOffset < 0) {
+                consoleStatusOffset = console.getDocument().getLength();
+            }
+            console.replaceRange(s + StringUtils.NEW_LINE, consoleStatusOffset, console.getDocument().getLength());
+            if (finished) {
+                consoleStatusOffset = -1;
+            }
+        });
+    }
+
     /**
      * Sets the menu items to enabled/disabled depending on the features enabled in settings
      */
@@ -366,13 +420,25 @@ public class Frame extends javax.swing.JFrame {
     }
 
     /**
-     * Function used to import files to the table. Skips hidden files (.*), duplicate files, etc. Then it updates the
-     * console based on the results.
+     * Function used to import files to the table. Skips hidden files (.*), duplicate files, etc. The songs are read on
+     * the import pool and added to the table in chunks as they're ready. Then it updates the console based on the
+     * results.
      * @param files the files to import
      * @return a list of valid mp3 files
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})    // for the DefaultRowSorter warnings
     public List<File> importFiles(List<File> files) {
+        return importFiles(files, Collections.emptyMap());
+    }
+
+    /**
+     * Function used to import files to the table, using the songs that were already read for any of the files instead
+     * of reading them again
+     * @param files the files to import
+     * @param alreadyRead songs that were already read ahead, keyed by file
+     * @return a list of valid mp3 files
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})    // for the DefaultRowSorter warnings
+    public List<File> importFiles(List<File> files, Map<File, Song> alreadyRead) {
         List<File> toRemove = new ArrayList<>();
         int duplicates = 0;
 
@@ -384,22 +450,39 @@ public class Frame extends javax.swing.JFrame {
                 .filter(file -> !file.getName().equals(".DS_Store"))
                 .collect(Collectors.toList());
 
+        // figure out which files we actually need to read
+        Set<File> filesToImportSet = new HashSet<>();
+        List<File> filesToImport = new ArrayList<>();
         for (File file : files) {
             if (file.getName().startsWith(".")) {
                 toRemove.add(file);
             } else if (file.getName().endsWith(".mp3")) {
-                // try to add it to the table
-                // if no luck, remove it from the file list, since the only chance we'd get a false from that method
-                // is the case of a duplicate file
-                if (!addFileToTable(file)) {
+                // check to make sure we're not adding duplicate files
+                if (songController.isInTable(file) || !filesToImportSet.add(file)) {
                     toRemove.add(file);
                     duplicates++;
+                } else {
+                    filesToImport.add(file);
                 }
             } else {
                 toRemove.add(file);
             }
         }
 
+        // read them all on the import pool, adding them to the table a chunk at a time as they're ready
+        long startTime = System.currentTimeMillis();
+        int[] loaded = {0};
+        List<File> failedFiles = songController.getImportService().importFiles(filesToImport, alreadyRead, chunk -> {
+            addSongsToTable(chunk);
+            loaded[0] += chunk.size();
+            updateConsoleStatus("Loading " + loaded[0] + "/" + filesToImport.size() + " mp3 file(s)... ("
+                    + getFilesPerSecond(loaded[0], startTime) + " files/sec)", false);
+        });
+
+        // if no luck on a file, remove it from the file list
+        toRemove.addAll(failedFiles);
+        duplicates += failedFiles.size();
+
         // clean up our list of files
         files.removeAll(toRemove);
 
@@ -418,21 +501,49 @@ public class Frame extends javax.swing.JFrame {
         });
 
         // update the console with some valid messaging
+        String rate = " (" + getFilesPerSecond(files.size(), startTime) + " files/sec)";
         if (CollectionUtils.isNotEmpty(files) && CollectionUtils.isEmpty(toRemove) && duplicates == 0) {
             // all files were MP3s
-            updateConsole(files.size() + " mp3 file(s) loaded!");
+            updateConsoleStatus(files.size() + " mp3 file(s) loaded!" + rate, true);
         } else if (CollectionUtils.isNotEmpty(files) && (CollectionUtils.isNotEmpty(toRemove) || duplicates > 0)) {
             // some mp3s, some invalid/duplicate
-            updateConsole(files.size() + " mp3 file(s) loaded, " +
-                    (toRemove.size() + duplicates) + " invalid/duplicate files not loaded!");
+            updateConsoleStatus(files.size() + " mp3 file(s) loaded, " +
+                    (toRemove.size() + duplicates) + " invalid/duplicate files not loaded!" + rate, true);
         } else if (CollectionUtils.isEmpty(files) && (CollectionUtils.isNotEmpty(toRemove) || duplicates > 0)) {
-            updateConsole("No mp3 files loaded, " + (toRemove.size() + duplicates) + " invalid/duplicate files given!");
+            updateConsoleStatus("No mp3 files loaded, " + (toRemove.size() + duplicates) + " invalid/duplicate files given!", true);
         }
 
         // return our list of files
         return files;
     }
 
+    /**
+     * Helper function to get the files per second since the start time, for the console
+     * @param count the number of files processed
+     * @param startTime the time we started processing
+     * @return the files per second
+     */
+    private long getFilesPerSecond(int count, long startTime) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        return Math.round(count * 1000.0 / elapsed);
+    }
+
+    /**
+     * Adds a chunk of imported songs and all of their pertinent information to the table as rows, all in one go on
+     * the EDT.  The album art column gets a placeholder, the thumbnail loader fills it in once the row is visible.
+     * @param songs the songs to add
+     */
+    public void addSongsToTable(List<Song> songs) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Song s : songs) {
+            songController.addSong(s);
+            rows.add(getRow(s));
+        }
+
+        // add the rows to the table, all with one table event
+        SwingUtilities.invokeLater(() -> ((SongTableModel) getModel()).addRows(rows));
+    }
+
     /**
      * Adds the file and all of its pertinent information to the table as a row. Works with the fileDrop functionality.
      * @param file the file to add
@@ -441,8 +552,7 @@ public class Frame extends javax.swing.JFrame {
     public boolean addFileToTable(File file) {
 
         // check to make sure we're not adding duplicate files
-        List<File> filesInTable = songController.getAllFilesInTable();
-        if (filesInTable.contains(file)) {
+        if (songController.isInTable(file)) {
             return false;
         }
 
@@ -451,35 +561,13 @@ public class Frame extends javax.swing.JFrame {
             return false;
         }
 
-        String cleanedFileName = file.getName()
-                .replace(".mp3", StringUtils.EMPTY)
-                .replace(":", "/");
-
         Song s = songController.getSongService().getSongFromFile(file);
 
         if (s != null) {
             songController.addSong(s);
 
-            // getting the image to put on the table
-            Icon thumbnail_icon = ImageUtils.getScaledImage(s.getArtwork_bytes(), 100);
-
             // add the row to the table
-            SwingUtilities.invokeLater(() ->
-                    getModel().addRow(new Object[]{
-                        IconUtils.get(IconUtils.DEFAULT), // adds the default status icon
-                        s.getFile(), // hidden file object
-                        cleanedFileName, // actual editable file name
-                        s.getTitle(),
-                        s.getArtist(),
-                        s.getAlbum(),
-                        s.getAlbumArtist(),
-                        s.getYear(),
-                        s.getGenre(),
-                        s.getFullTrackString(),
-                        s.getFullDiskString(),
-                        thumbnail_icon,
-                        s.getIndex() // hidden index for the song object
-            }));
+            SwingUtilities.invokeLater(() -> getModel().addRow(getRow(s)));
 
             // all is well in the world
             return true;
@@ -487,6 +575,33 @@ public class Frame extends javax.swing.JFrame {
         return false;
     }
 
+    /**
+     * Builds the table row for a song, with a placeholder for the thumbnail
+     * @param s the song to build the row for
+     * @return the row
+     */
+    private Object[] getRow(Song s) {
+        String cleanedFileName = s.getFile().getName()
+                .replace(".mp3", StringUtils.EMPTY)
+                .replace(":", "/");
+
+        return new Object[]{
+            IconUtils.get(IconUtils.DEFAULT), // adds the default status icon
+            s.getFile(), // hidden file object
+            cleanedFileName, // actual editable file name
+            s.getTitle(),
+            s.getArtist(),
+            s.getAlbum(),
+            s.getAlbumArtist(),
+            s.getYear(),
+            s.getGenre(),
+            s.getFullTrackString(),
+            s.getFullDiskString(),
+            ThumbnailLoader.PLACEHOLDER, // album art, built once the row is visible
+            s.getIndex() // hidden index for the song object
+        };
+    }
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -1888,7 +2003,7 @@ public class Frame extends javax.swing.JFrame {
         List<String> years = new ArrayList<>();
         List<String> tracks = new ArrayList<>();
         List<String> disks = new ArrayList<>();
-        List<byte[]> images = new ArrayList<>();
+        List<Song> selectedSongs = new ArrayList<>();
 
         // fill the lists
         for (int row : selectedRows) {
@@ -1900,7 +2015,7 @@ public class Frame extends javax.swing.JFrame {
             genres.add(StringUtils.validateString(table.getValueAt(row, TABLE_COLUMN_GENRE)));
             tracks.add(StringUtils.validateString(table.getValueAt(row, TABLE_COLUMN_TRACK)));
             disks.add(StringUtils.validateString(table.getValueAt(row, TABLE_COLUMN_DISK)));
-            images.add(songController.getSongs().get(songController.getIndex(row)).getArtwork_bytes());
+            selectedSongs.add(songController.getSongs().get(songController.getIndex(row)));
         }
 
         // fill the fields
@@ -1913,12 +2028,13 @@ public class Frame extends javax.swing.JFrame {
         multTrack.setText(StringUtils.checkIfSame(tracks.get(0), tracks) ? tracks.get(0) : Constants.DASH);
         multDisk.setText(StringUtils.checkIfSame(disks.get(0), disks) ? disks.get(0) : Constants.DASH);
 
-        if (ImageUtils.checkIfSame(images.get(0), images) && images.get(0) != null) {
-            multImage.setIcon(ImageUtils.getScaledImage(images.get(0), 150));
-            originalMultPanelArtwork = newMultPanelArtwork = images.get(0);
+        byte[] artwork = selectedSongs.get(0).getArtwork_bytes();
+        if (MP3FileUtils.checkIfSameArtwork(selectedSongs) && artwork != null) {
+            multImage.setIcon(ImageUtils.getScaledImage(artwork, selectedSongs.get(0).getArtworkHash(), 150));
+            originalMultPanelArtwork = newMultPanelArtwork = artwork;
             multipleArtworks = false;
         } else {
-            List<byte[]> bytesList = ImageUtils.getUniqueByteArrays(images);
+            List<byte[]> bytesList = MP3FileUtils.getUniqueArtwork(selectedSongs);
             multImage.setIcon(new ImageIcon(ImageUtils.combineImages(bytesList, 150)));
             multipleArtworks = true;
         }
@@ -2044,11 +2160,11 @@ public class Frame extends javax.swing.JFrame {
         }
 
         // album art
-        if (!Arrays.equals(song.getArtwork_bytes(),
-                ImageUtils.getBytesFromImageIcon((ImageIcon) table.getValueAt(row, TABLE_COLUMN_ALBUM_ART)))) {
+        if (!song.hasSameArtwork(songController.getSongs().get(songController.getIndex(row)))) {
             if (!multipleArtworks) {
                 songController.setAlbumImage(songController.getIndex(row), song.getArtwork_bytes());
-                table.setValueAt(ImageUtils.getScaledImage(song.getArtwork_bytes(), 100), row, TABLE_COLUMN_ALBUM_ART);
+                table.setValueAt(ImageUtils.getScaledImage(song.getArtwork_bytes(), song.getArtworkHash(), 100),
+                        row, TABLE_COLUMN_ALBUM_ART);
             }
         }
     }
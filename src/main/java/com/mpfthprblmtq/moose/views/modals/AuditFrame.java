@@ -18,9 +18,15 @@ import com.mpfthprblmtq.moose.controllers.AuditController;
 import com.mpfthprblmtq.moose.controllers.CleanupController;
 import com.mpfthprblmtq.moose.utilities.Constants;
 import com.mpfthprblmtq.moose.utilities.IconUtils;
+import com.mpfthprblmtq.moose.utilities.ReportWriter;
+import com.mpfthprblmtq.moose.utilities.viewUtils.ViewUtils;
 
 import java.awt.Font;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Objects;
 import javax.swing.*;
@@ -31,6 +37,9 @@ import static com.mpfthprblmtq.moose.utilities.Constants.*;
 @SuppressWarnings("FieldCanBeLocal")    // for NetBeans' field declaration at bottom of class
 public class AuditFrame extends javax.swing.JFrame {
 
+    // how many lines of the results report to show on the View Results panel
+    private static final int PREVIEW_LINES = 1000;
+
     // controllers
     public AuditController auditController;
     public CleanupController cleanupController;
@@ -126,6 +135,7 @@ public class AuditFrame extends javax.swing.JFrame {
             label1.setEnabled(true);
 
             auditAnalyzeButton.setEnabled(true);
+            fullRescanCheckBox.setEnabled(true);
             cleanupAnalyzeButton.setEnabled(true);
 
             return Moose.getSettings().getLibraryLocation();
@@ -156,6 +166,7 @@ public class AuditFrame extends javax.swing.JFrame {
         label5 = new javax.swing.JLabel();
         label2 = new javax.swing.JLabel();
         auditAnalyzeButton = new javax.swing.JButton();
+        fullRescanCheckBox = new javax.swing.JCheckBox();
         auditStartButton = new javax.swing.JButton();
         auditViewResultsButton = new javax.swing.JButton();
         currentDirLabel = new javax.swing.JLabel();
@@ -180,6 +191,7 @@ public class AuditFrame extends javax.swing.JFrame {
         cleanupViewResultsButton = new javax.swing.JButton();
         deleteAllButton = new javax.swing.JButton();
         deleteSelectedButton = new javax.swing.JButton();
+        dryRunCheckBox = new javax.swing.JCheckBox();
         customFileExtensionCheckBox = new javax.swing.JCheckBox();
         customFileExtensionTextField = new javax.swing.JTextField();
         customFileExtensionLabel = new javax.swing.JLabel();
@@ -255,6 +267,10 @@ public class AuditFrame extends javax.swing.JFrame {
             }
         });
 
+        fullRescanCheckBox.setText("Full rescan");
+        fullRescanCheckBox.setToolTipText("Check every album again, not just the ones that changed since the last analysis");
+        fullRescanCheckBox.setEnabled(false);
+
         auditStartButton.setText("Start Audit");
         auditStartButton.setEnabled(false);
         auditStartButton.addActionListener(new java.awt.event.ActionListener() {
@@ -323,6 +339,7 @@ public class AuditFrame extends javax.swing.JFrame {
                                 .addGroup(auditPanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                                     .addGroup(auditPanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                                         .addComponent(auditAnalyzeButton, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                                        .addComponent(fullRescanCheckBox)
                                         .addComponent(auditStartButton, javax.swing.GroupLayout.PREFERRED_SIZE, 150, javax.swing.GroupLayout.PREFERRED_SIZE)
                                         .addComponent(auditViewResultsButton, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.PREFERRED_SIZE, 149, javax.swing.GroupLayout.PREFERRED_SIZE))
                                     .addComponent(label2))
@@ -363,6 +380,8 @@ public class AuditFrame extends javax.swing.JFrame {
                     .addGroup(auditPanelLayout.createSequentialGroup()
                         .addComponent(auditAnalyzeButton, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(fullRescanCheckBox)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                         .addComponent(auditViewResultsButton, javax.swing.GroupLayout.PREFERRED_SIZE, 40, javax.swing.GroupLayout.PREFERRED_SIZE)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                         .addComponent(auditStartButton, javax.swing.GroupLayout.PREFERRED_SIZE, 40, javax.swing.GroupLayout.PREFERRED_SIZE)
@@ -508,6 +527,10 @@ public class AuditFrame extends javax.swing.JFrame {
             }
         });
 
+        dryRunCheckBox.setText("Dry run");
+        dryRunCheckBox.setToolTipText("Only count the files and the space they take up, without deleting anything");
+        dryRunCheckBox.setEnabled(false);
+
         customFileExtensionCheckBox.setEnabled(false);
         customFileExtensionCheckBox.addChangeListener(new javax.swing.event.ChangeListener() {
             public void stateChanged(javax.swing.event.ChangeEvent evt) {
@@ -562,6 +585,7 @@ public class AuditFrame extends javax.swing.JFrame {
                             .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, cleanupPanelLayout.createSequentialGroup()
                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                                 .addGroup(cleanupPanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
+                                    .addComponent(dryRunCheckBox)
                                     .addComponent(deleteAllButton, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                                     .addComponent(deleteSelectedButton, javax.swing.GroupLayout.DEFAULT_SIZE, 152, Short.MAX_VALUE))))
                         .addContainerGap())
@@ -611,7 +635,9 @@ public class AuditFrame extends javax.swing.JFrame {
                             .addComponent(customFileExtensionLabel)
                             .addComponent(customFileExtensionPrefixLabel))
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, 4, javax.swing.GroupLayout.PREFERRED_SIZE)))
-                .addGap(60, 60, 60)
+                .addGap(30, 30, 30)
+                .addComponent(dryRunCheckBox)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(deleteSelectedButton, javax.swing.GroupLayout.PREFERRED_SIZE, 40, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(deleteAllButton, javax.swing.GroupLayout.PREFERRED_SIZE, 40, javax.swing.GroupLayout.PREFERRED_SIZE)
@@ -676,6 +702,7 @@ public class AuditFrame extends javax.swing.JFrame {
         chooseFolder();
         if(auditController.getFolder() != null) {
             auditAnalyzeButton.setEnabled(true);
+            fullRescanCheckBox.setEnabled(true);
             cleanupAnalyzeButton.setEnabled(true);
         }
     }//GEN-LAST:event_chooseFolderButtonActionPerformed
@@ -703,11 +730,12 @@ public class AuditFrame extends javax.swing.JFrame {
             protected Void doInBackground() {
                 // update graphics
                 auditAnalyzeButton.setEnabled(false);
+                fullRescanCheckBox.setEnabled(false);
                 auditCurrentlyScanningLabel.setHorizontalAlignment(SwingConstants.LEADING);
                 auditCurrentlyScanningLabel.setText("Importing albums...");
 
                 // do analysis
-                auditController.analyze();
+                auditController.analyze(fullRescanCheckBox.isSelected());
 
                 // update graphics again
                 auditViewResultsButton.setEnabled(true);    // enable the buttons used for audit now that we have results
@@ -748,6 +776,7 @@ public class AuditFrame extends javax.swing.JFrame {
     private void startAudit() {
         // update graphics
         auditAnalyzeButton.setEnabled(false);
+        fullRescanCheckBox.setEnabled(false);
         chooseFolderButton.setEnabled(false);
         auditViewResultsButton.setEnabled(true);
         nextFolderButton.setEnabled(true);
@@ -891,14 +920,15 @@ public class AuditFrame extends javax.swing.JFrame {
      */
     @SuppressWarnings("unused") // for the evt param
     private void deleteAllButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_deleteAllButtonActionPerformed
-        int returnVal = JOptionPane.showConfirmDialog(
+        boolean dryRun = dryRunCheckBox.isSelected();
+        int returnVal = dryRun ? JOptionPane.YES_OPTION : JOptionPane.showConfirmDialog(
                 null,
                 "Are you sure you want to delete all extra files?",
                 "Confirm Delete",
                 JOptionPane.YES_NO_OPTION,
                 JOptionPane.WARNING_MESSAGE);
         if (returnVal == 0) {
-            cleanupController.deleteAll();
+            startCleanupDeletion(() -> cleanupController.deleteAll(dryRun));
         }
     }//GEN-LAST:event_deleteAllButtonActionPerformed
 
@@ -908,22 +938,24 @@ public class AuditFrame extends javax.swing.JFrame {
      */
     @SuppressWarnings("unused") // for the evt param
     private void deleteSelectedButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_deleteSelectedButtonActionPerformed
-        int returnVal = JOptionPane.showConfirmDialog(
+        boolean dryRun = dryRunCheckBox.isSelected();
+        int returnVal = dryRun ? JOptionPane.YES_OPTION : JOptionPane.showConfirmDialog(
                 null,
                 "Are you sure you want to delete the selected extra files?",
                 "Confirm Delete",
                 JOptionPane.YES_NO_OPTION,
                 JOptionPane.WARNING_MESSAGE);
         if (returnVal == JOptionPane.YES_OPTION) {
-            cleanupController.deleteSelected(
-                    mp3asdCheckBox.isSelected(),
-                    flacCheckBox.isSelected(),
-                    wavCheckBox.isSelected(),
-                    zipCheckBox.isSelected(),
-                    imagesCheckBox.isSelected(),
-                    windowsCheckBox.isSelected(),
-                    everythingElseCheckBox.isSelected(),
-                    customFileExtensionCheckBox.isSelected() ? customFileExtensionTextField.getText() : null);
+            boolean mp3asd = mp3asdCheckBox.isSelected();
+            boolean flac = flacCheckBox.isSelected();
+            boolean wav = wavCheckBox.isSelected();
+            boolean zip = zipCheckBox.isSelected();
+            boolean images = imagesCheckBox.isSelected();
+            boolean windows = windowsCheckBox.isSelected();
+            boolean everythingElse = everythingElseCheckBox.isSelected();
+            String customExtension = customFileExtensionCheckBox.isSelected() ? customFileExtensionTextField.getText() : null;
+            startCleanupDeletion(() -> cleanupController.deleteSelected(
+                    mp3asd, flac, wav, zip, images, windows, everythingElse, customExtension, dryRun));
         }
     }//GEN-LAST:event_deleteSelectedButtonActionPerformed
 
@@ -1048,6 +1080,35 @@ public class AuditFrame extends javax.swing.JFrame {
         worker.execute();
     }
 
+    /**
+     * Runs a cleanup deletion in a separate thread so the progress can be shown, with the cleanup buttons disabled
+     * while it runs
+     * @param deletion the deletion to run
+     */
+    private void startCleanupDeletion(Runnable deletion) {
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() {
+                // update graphics
+                boolean deleteSelectedEnabled = deleteSelectedButton.isEnabled();
+                cleanupAnalyzeButton.setEnabled(false);
+                deleteAllButton.setEnabled(false);
+                deleteSelectedButton.setEnabled(false);
+
+                // delete
+                deletion.run();
+
+                // update graphics again
+                cleanupAnalyzeButton.setEnabled(true);
+                deleteAllButton.setEnabled(true);
+                deleteSelectedButton.setEnabled(deleteSelectedEnabled && getDeleteSelectedButtonStatus());
+
+                return null;
+            }
+        };
+        worker.execute();
+    }
+
     public void setCleanupCheckBoxesEnabled(boolean enabled) {
         if (!enabled) {
             wavCheckBox.setSelected(false);
@@ -1059,6 +1120,7 @@ public class AuditFrame extends javax.swing.JFrame {
             imagesCheckBox.setSelected(false);
             customFileExtensionCheckBox.setSelected(false);
             customFileExtensionTextField.setText(StringUtils.EMPTY);
+            dryRunCheckBox.setSelected(false);
         }
 
         mp3asdCheckBox.setEnabled(enabled);
@@ -1069,6 +1131,7 @@ public class AuditFrame extends javax.swing.JFrame {
         everythingElseCheckBox.setEnabled(enabled);
         imagesCheckBox.setEnabled(enabled);
         customFileExtensionCheckBox.setEnabled(enabled);
+        dryRunCheckBox.setEnabled(enabled);
     }
 
     /**
@@ -1136,30 +1199,100 @@ public class AuditFrame extends javax.swing.JFrame {
         // header JLabel
         JLabel cleanupPathLabel = new JLabel("Audit folder: " + auditController.getFolder().getPath());
 
-        // text area
+        // text area, with a preview of the report
         JTextArea ta = new JTextArea(20, 100);
         ta.setEditable(false);
         ta.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        switch (type) {
-            case Constants.AUDIT:
-                ta.setText(auditController.getResults());
-                break;
-            case Constants.CLEANUP:
-                ta.setText(cleanupController.getResults());
-                break;
+        File report = writeResults(type, ReportWriter.Format.TEXT);
+        if (report != null) {
+            ta.setText(readPreview(report));
+            ta.setCaretPosition(0);
         }
 
+        // buttons to open the full report
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.setLayout(new BoxLayout(buttonPanel, BoxLayout.X_AXIS));
+        buttonPanel.add(new JLabel("Open full report as: "));
+        for (ReportWriter.Format format : ReportWriter.Format.values()) {
+            JButton button = new JButton(format.getExtension().toUpperCase());
+            button.addActionListener(e -> openResults(type, format));
+            buttonPanel.add(button);
+        }
+        buttonPanel.setAlignmentX(LEFT_ALIGNMENT);
+
         // add it all to a panel
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
         panel.add(cleanupPathLabel);
         panel.add(Box.createVerticalStrut(10));
-        panel.add(new JScrollPane(ta));
+        JScrollPane scrollPane = new JScrollPane(ta);
+        scrollPane.setAlignmentX(LEFT_ALIGNMENT);
+        panel.add(scrollPane);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(buttonPanel);
 
         // return said panel
         return panel;
     }
 
+    /**
+     * Writes the results of the audit or cleanup out to a report, showing an error if it couldn't be written
+     * @param type the type of results needed (AUDIT or CLEANUP)
+     * @param format the format to write the report in
+     * @return the report file, or null if it couldn't be written
+     */
+    private File writeResults(int type, ReportWriter.Format format) {
+        try {
+            return type == Constants.AUDIT ? auditController.writeResults(format) : cleanupController.writeResults(format);
+        } catch (IOException e) {
+            Moose.getLogger().logError("Couldn't write the results report!", e);
+            ViewUtils.showErrorDialog("Couldn't write the results report!", e, this);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the first page of a report for the View Results panel, so a huge result set doesn't all end up in the
+     * text area
+     * @param report the report to read
+     * @return the first PREVIEW_LINES lines of the report, with a note at the end if there's more
+     */
+    private String readPreview(File report) {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(report.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lines = 0;
+            while ((line = reader.readLine()) != null) {
+                if (lines++ == PREVIEW_LINES) {
+                    sb.append("\n ... more results in the full report, open it below to see them all\n");
+                    break;
+                }
+                sb.append(line).append("\n");
+            }
+        } catch (IOException e) {
+            Moose.getLogger().logError("Couldn't read the results report: " + report.getPath(), e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the results of the audit or cleanup out to a report and opens it
+     * @param type the type of results needed (AUDIT or CLEANUP)
+     * @param format the format to write the report in
+     */
+    private void openResults(int type, ReportWriter.Format format) {
+        File report = writeResults(type, format);
+        if (report == null) {
+            return;
+        }
+        try {
+            FileUtils.openFile(report);
+        } catch (Exception e) {
+            Moose.getLogger().logError("Couldn't open results report: " + report.getPath(), e);
+            ViewUtils.showErrorDialog("Couldn't open results report: " + report.getPath(), e, this);
+        }
+    }
+
     /**
      * Sets the audit frame back to its starting point
      */
@@ -1179,6 +1312,7 @@ public class AuditFrame extends javax.swing.JFrame {
         auditCurrentlyScanningLabel.setText(StringUtils.EMPTY);
         auditProgressBar.setValue(0);
         auditAnalyzeButton.setEnabled(true);
+        fullRescanCheckBox.setEnabled(true);
         auditStartButton.setEnabled(false);
         auditStartButton.setText("Start Audit");
         auditViewResultsButton.setEnabled(false);
@@ -1232,9 +1366,11 @@ public class AuditFrame extends javax.swing.JFrame {
     private javax.swing.JTextField customFileExtensionTextField;
     private javax.swing.JButton deleteAllButton;
     private javax.swing.JButton deleteSelectedButton;
+    private javax.swing.JCheckBox dryRunCheckBox;
     private javax.swing.JCheckBox everythingElseCheckBox;
     private javax.swing.JLabel filenameCheck;
     private javax.swing.JCheckBox flacCheckBox;
+    private javax.swing.JCheckBox fullRescanCheckBox;
     private javax.swing.JCheckBox imagesCheckBox;
     private javax.swing.JScrollPane jScrollPane1;
     private javax.swing.JScrollPane jScrollPane2;
@@ -910,7 +910,7 @@ public class InfoFrame extends javax.swing.JFrame {
             bitrateField.setText(song.getBitrate());
             sampleRateField.setText(song.getSampleRate());
             commentField.setText(song.getComment());
-            coverLabel.setIcon(ImageUtils.getScaledImage(song.getArtwork_bytes(), 290));
+            coverLabel.setIcon(ImageUtils.getScaledImage(song.getArtwork_bytes(), song.getArtworkHash(), 290));
 
         } else {
 
@@ -929,7 +929,6 @@ public class InfoFrame extends javax.swing.JFrame {
             List<String> bitRates = new ArrayList<>();
             List<String> sampleRates = new ArrayList<>();
             List<String> comments = new ArrayList<>();
-            List<byte[]> images = new ArrayList<>();
 
             // fill the lists
             for (Song s : songs) {
@@ -947,7 +946,6 @@ public class InfoFrame extends javax.swing.JFrame {
                 bitRates.add(s.getBitrate());
                 sampleRates.add(s.getSampleRate());
                 comments.add(s.getComment());
-                images.add(s.getArtwork_bytes());
             }
 
             // set the fields
@@ -968,11 +966,12 @@ public class InfoFrame extends javax.swing.JFrame {
             sampleRateField.setText(StringUtils.checkIfSame(sampleRates.get(0), sampleRates) ? sampleRates.get(0) : Constants.DASH);
             commentField.setText(StringUtils.checkIfSame(comments.get(0), comments) ? comments.get(0) : Constants.DASH);
 
-            if (ImageUtils.checkIfSame(images.get(0), images) && images.get(0) != null) {
-                coverLabel.setIcon(ImageUtils.getScaledImage(images.get(0), 290));
-                originalArtwork = newArtwork = images.get(0);
+            byte[] artwork = songs.get(0).getArtwork_bytes();
+            if (MP3FileUtils.checkIfSameArtwork(songs) && artwork != null) {
+                coverLabel.setIcon(ImageUtils.getScaledImage(artwork, songs.get(0).getArtworkHash(), 290));
+                originalArtwork = newArtwork = artwork;
             } else {
-                List<byte[]> bytesList = ImageUtils.getUniqueByteArrays(images);
+                List<byte[]> bytesList = MP3FileUtils.getUniqueArtwork(songs);
                 coverLabel.setIcon(new ImageIcon(ImageUtils.combineImages(bytesList, 290)));
             }
         }
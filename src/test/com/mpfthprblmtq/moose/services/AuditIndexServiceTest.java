@@ -0,0 +1,57 @@
+package com.mpfthprblmtq.moose.services;
+
+import com.mpfthprblmtq.moose.objects.AuditAlbum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditIndexServiceTest {
+
+    @TempDir
+    File tempDir;
+
+    AuditService auditService = new AuditService();
+
+    @Test
+    public void testGet_whenAlbumUnchanged_returnsIndexedResults() throws Exception {
+        File library = createAlbum();
+        AuditIndexService writer = new AuditIndexService(tempDir.getPath() + "/");
+        writer.put(auditService.importAlbums(library).get(0), Arrays.asList(true, false, true));
+        assertTrue(writer.writeIndexFile());
+
+        AuditIndexService reader = new AuditIndexService(tempDir.getPath() + "/");
+        reader.readIndexFile();
+        assertEquals(Arrays.asList(true, false, true), reader.get(auditService.importAlbums(library).get(0)));
+    }
+
+    @Test
+    public void testGet_whenAlbumChanged_returnsNull() throws Exception {
+        File library = createAlbum();
+        AuditIndexService underTest = new AuditIndexService(tempDir.getPath() + "/");
+        underTest.put(auditService.importAlbums(library).get(0), Arrays.asList(false, false, false));
+
+        // same size, rewritten in place
+        File mp3 = new File(library, "Artist/[2020] Album/01 Title.mp3");
+        Files.write(mp3.toPath(), new byte[]{4, 5, 6});
+        Files.setLastModifiedTime(mp3.toPath(), FileTime.fromMillis(mp3.lastModified() + 2000));
+
+        List<AuditAlbum> albums = auditService.importAlbums(library);
+        assertNull(underTest.get(albums.get(0)));
+    }
+
+    private File createAlbum() throws Exception {
+        File library = new File(tempDir, "Library");
+        File album = new File(library, "Artist/[2020] Album");
+        Files.createDirectories(album.toPath());
+        Files.write(new File(album, "01 Title.mp3").toPath(), new byte[]{1, 2, 3});
+        Files.write(new File(album, "cover.jpg").toPath(), new byte[]{1});
+        return library;
+    }
+}
@@ -0,0 +1,77 @@
+package com.mpfthprblmtq.moose.services;
+
+import com.mpfthprblmtq.moose.objects.AuditAlbum;
+import com.mpfthprblmtq.moose.utilities.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditServiceTest {
+
+    @TempDir
+    File tempDir;
+
+    AuditService underTest = new AuditService();
+
+    @Test
+    public void testImportAlbums_buildsOneAlbumPerDirectory() throws Exception {
+        File library = new File(tempDir, "Library");
+        createFile(library, "Artist/[2020] Second/01 Title.mp3");
+        createFile(library, "Artist/[2020] Second/02 Title.mp3");
+        createFile(library, "Artist/[2020] Second/cover.jpg");
+        createFile(library, "Artist/[2020] Second/scan.png");
+        createFile(library, "Artist/[2019] First/CD1/01 Title.mp3");
+        createFile(library, "Artist/[2019] First/CD2/Title.mp3");
+        createFile(library, "Artist/notes.txt");
+
+        List<AuditAlbum> albums = underTest.importAlbums(library);
+        assertEquals(2, albums.size());
+
+        AuditAlbum first = albums.get(0);
+        assertEquals("[2019] First", first.getDirectory().getName());
+        assertEquals(2, first.getMp3Files().size());
+        assertEquals(2, first.getSubfolders().size());
+        assertTrue(underTest.coverHasErrors(first));
+        assertTrue(underTest.filesHaveErrors(first));
+
+        AuditAlbum second = albums.get(1);
+        assertEquals("[2020] Second", second.getDirectory().getName());
+        assertEquals(2, second.getMp3Files().size());
+        assertEquals(2, second.getImageFiles().size());
+        assertTrue(second.getSubfolders().isEmpty());
+        assertFalse(underTest.coverHasErrors(second));
+        assertFalse(underTest.filesHaveErrors(second));
+    }
+
+    @Test
+    public void testCheckAlbums_returnsResultsInAlbumOrder() {
+        List<AuditAlbum> albums = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            AuditAlbum album = new AuditAlbum(new File(tempDir, "Album " + i));
+            if (i % 3 == 0) {
+                album.setCoverFile(new File(album.getDirectory(), "cover.jpg"));
+            }
+            albums.add(album);
+        }
+
+        List<Integer> progress = new ArrayList<>();
+        List<List<Boolean>> results = underTest.checkAlbums(albums, true, (checked, album) -> progress.add(checked));
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 3 != 0, results.get(i).get(Constants.COVER));
+        }
+        assertEquals(100, progress.get(progress.size() - 1));
+    }
+
+    private void createFile(File root, String path) throws Exception {
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.createFile(file.toPath());
+    }
+}
@@ -0,0 +1,44 @@
+package com.mpfthprblmtq.moose.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditSessionServiceTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testGetNextAlbum_afterRestart_picksUpWhereItLeftOff() {
+        List<File> albums = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            albums.add(new File("/Library/Artist/Album " + i));
+        }
+        AuditSessionService writer = new AuditSessionService(tempDir.getPath() + "/");
+        writer.start(albums);
+        assertFalse(writer.hasProgress(albums));
+        writer.setDone(albums.get(0));
+        writer.setDone(albums.get(1));
+        writer.setCurrent(albums.get(2));
+
+        AuditSessionService reader = new AuditSessionService(tempDir.getPath() + "/");
+        assertTrue(reader.hasProgress(albums));
+        assertTrue(reader.isDone(albums.get(1)));
+        assertFalse(reader.isDone(albums.get(2)));
+        assertEquals(2, reader.getNextAlbum(albums));
+
+        // the current album was finished, so go to the first one that isn't
+        reader.setDone(albums.get(2));
+        assertEquals(3, reader.getNextAlbum(albums));
+
+        reader.clear();
+        assertFalse(new AuditSessionService(tempDir.getPath() + "/").hasProgress(albums));
+        assertEquals(0, tempDir.listFiles().length);
+    }
+}
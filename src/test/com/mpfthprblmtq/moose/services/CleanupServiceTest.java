@@ -0,0 +1,106 @@
+package com.mpfthprblmtq.moose.services;
+
+import com.mpfthprblmtq.moose.objects.DeletionResult;
+import com.mpfthprblmtq.moose.utilities.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CleanupServiceTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testGetCategory() {
+        assertEquals(Constants.MP3_FILES, CleanupService.getCategory("01 Title.mp3", "Album"));
+        assertEquals(Constants.COVER_FILES, CleanupService.getCategory("cover.png", "Album"));
+        assertEquals(Constants.MP3ASD, CleanupService.getCategory("01 Title.mp3.asd", "Album"));
+        assertEquals(Constants.FLAC, CleanupService.getCategory("01 Title.flac", "Album"));
+        assertEquals(Constants.ZIP, CleanupService.getCategory("folder.zip", "Album"));
+        assertEquals(Constants.IMG, CleanupService.getCategory("scan.JPG", "Album"));
+        assertEquals(Constants.IMG, CleanupService.getCategory("folder.jpg", "Album"));
+        assertEquals(CleanupService.IGNORED, CleanupService.getCategory("scan.jpg", "artwork"));
+        assertEquals(Constants.WINDOWS, CleanupService.getCategory("folder.jpg", "artwork"));
+        assertEquals(Constants.WINDOWS, CleanupService.getCategory("Thumbs.db", "Album"));
+        assertEquals(CleanupService.IGNORED, CleanupService.getCategory(".DS_Store", "Album"));
+        assertEquals(Constants.OTHER, CleanupService.getCategory("notes.txt", "Album"));
+        assertEquals(Constants.OTHER, CleanupService.getCategory("README", "Album"));
+    }
+
+    @Test
+    public void testAnalyze_whenParallel_matchesSequential() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            createFile("Artist " + i + "/Album/01 Title.mp3", 10);
+            createFile("Artist " + i + "/Album/cover.jpg", 5);
+            createFile("Artist " + i + "/Album/01 Title.mp3.asd", 3);
+            createFile("Artist " + i + "/Album/scan.png", 7);
+        }
+        createFile("notes.txt", 2);
+
+        CleanupService underTest = new CleanupService();
+        underTest.setFolder(tempDir);
+        for (boolean parallel : new boolean[]{false, true}) {
+            List<List<String>> filePathList = getFilePathList();
+            List<Integer> progress = new ArrayList<>();
+            assertEquals(41, underTest.analyze(filePathList, parallel, (count, percentage) -> progress.add(percentage)));
+            assertEquals(100, progress.get(progress.size() - 1));
+            assertEquals(10, filePathList.get(Constants.MP3ASD).size());
+            assertEquals(10, filePathList.get(Constants.IMG).size());
+            assertEquals(1, filePathList.get(Constants.OTHER).size());
+            assertTrue(filePathList.get(Constants.IMG).get(0).contains("Artist 0"));
+            assertTrue(underTest.getAnalysisResults().startsWith("MP3 Files:     10 (100 B)"));
+        }
+    }
+
+    @Test
+    public void testDelete_whenDryRun_onlyCountsFiles() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            createFile("Artist " + i + "/Album/01 Title.mp3", 10);
+            createFile("Artist " + i + "/Album/01 Title.mp3.asd", 3);
+            createFile("Artist " + i + "/Album/log.cue", 4);
+        }
+        CleanupService underTest = new CleanupService();
+        underTest.setFolder(tempDir);
+        underTest.analyze(getFilePathList(), true, (count, percentage) -> {});
+
+        // custom extensions come from the index built in the analysis
+        List<String> paths = underTest.getFilesWithExtension("cue");
+        assertEquals(5, paths.size());
+        assertEquals(5, underTest.getFilesWithExtension("mp3.asd").size());
+
+        DeletionResult dryRun = underTest.delete(paths, true, (count, percentage) -> {});
+        assertEquals(5, dryRun.getFilesDeleted());
+        assertEquals(20, dryRun.getBytesReclaimed());
+        assertEquals(0, dryRun.getFilesFailed());
+        assertTrue(new File(paths.get(0)).exists());
+
+        List<Integer> progress = new ArrayList<>();
+        DeletionResult result = underTest.delete(paths, false, (count, percentage) -> progress.add(percentage));
+        assertEquals(5, result.getFilesDeleted());
+        assertEquals(20, result.getBytesReclaimed());
+        assertEquals(100, progress.get(progress.size() - 1));
+        assertFalse(new File(paths.get(0)).exists());
+        assertTrue(new File(tempDir, "Artist 0/Album/01 Title.mp3").exists());
+    }
+
+    private List<List<String>> getFilePathList() {
+        List<List<String>> filePathList = new ArrayList<>();
+        for (int i = 0; i < CleanupService.CATEGORY_COUNT; i++) {
+            filePathList.add(new ArrayList<>());
+        }
+        return filePathList;
+    }
+
+    private void createFile(String path, int size) throws Exception {
+        File file = new File(tempDir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), new byte[size]);
+    }
+}
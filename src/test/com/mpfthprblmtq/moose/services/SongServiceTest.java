@@ -0,0 +1,110 @@
+package com.mpfthprblmtq.moose.services;
+
+import com.mpatric.mp3agic.ID3v2;
+import com.mpatric.mp3agic.ID3v24Tag;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.objects.Song;
+import com.mpfthprblmtq.moose.utilities.MP3HeaderUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongServiceTest {
+
+    @TempDir
+    File tempDir;
+
+    SongService underTest = new SongService();
+
+    @Test
+    public void testSave_whenOnlyTitleEdited_keepsOtherFrames() throws Exception {
+        File file = createFile("01 Title.mp3");
+        Song song = Song.builder().file(file).title("New Title").artist("Someone Else").build();
+        song.fieldEdited(Song.TITLE);
+
+        assertTrue(underTest.save(song));
+        ID3v2 tag = readTag(file);
+        assertEquals("New Title", tag.getTitle());
+        assertEquals("Artist", tag.getArtist());
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, tag.getAlbumImage());
+        assertFalse(song.hasTagEdits());
+    }
+
+    @Test
+    public void testSave_whenFieldCleared_removesFrame() throws Exception {
+        File file = createFile("01 Title.mp3");
+        Song song = Song.builder().file(file).artist("").build();
+        song.fieldEdited(Song.ARTIST);
+
+        assertTrue(underTest.save(song));
+        ID3v2 tag = readTag(file);
+        assertNull(tag.getArtist());
+        assertEquals("Title", tag.getTitle());
+    }
+
+    @Test
+    public void testSave_whenOnlyRenamed_doesNotTouchTag() throws Exception {
+        File file = createFile("01 Title.mp3");
+        byte[] original = Files.readAllBytes(file.toPath());
+        File newFile = new File(tempDir, "01 Renamed.mp3");
+        Song song = Song.builder().file(file).newFile(newFile).build();
+        song.fieldEdited(Song.FILE_NAME);
+
+        assertTrue(underTest.save(song));
+        assertEquals(newFile, song.getFile());
+        assertArrayEquals(original, Files.readAllBytes(newFile.toPath()));
+    }
+
+    @Test
+    public void testGetSongFromFile_whenCached_keepsArtwork() throws Exception {
+        File file = createFile("01 Title.mp3");
+        Moose.tagCacheService = new TagCacheService(tempDir.getPath() + "/");
+        try {
+            Song read = underTest.getSongFromFile(file);
+            assertNotNull(read.getArtworkLocation());
+
+            // served from the cache this time, with the artwork still read from where it is in the file
+            Moose.tagCacheService.put(Song.builder().file(file).title("Cached")
+                    .artworkLocation(read.getArtworkLocation()).build());
+            Song cached = underTest.getSongFromFile(file);
+            assertEquals("Cached", cached.getTitle());
+            assertArrayEquals(new byte[]{1, 2, 3, 4}, cached.getArtwork_bytes());
+        } finally {
+            Moose.tagCacheService = null;
+        }
+    }
+
+    private ID3v2 readTag(File file) throws Exception {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return MP3HeaderUtils.readID3v2Tag(channel);
+        }
+    }
+
+    private File createFile(String name) throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        tag.setArtist("Artist");
+        tag.setAlbumImage(new byte[]{1, 2, 3, 4}, "image/jpeg");
+        tag.setPadding(true);
+        File file = new File(tempDir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(tag.toBytes());
+            for (int i = 0; i < 20; i++) {
+                // empty MPEG 1 layer III, 128 kbps, 44.1 kHz frames
+                byte[] frame = new byte[417];
+                frame[0] = (byte) 0xFF;
+                frame[1] = (byte) 0xFB;
+                frame[2] = (byte) 0x90;
+                out.write(frame);
+            }
+        }
+        return file;
+    }
+}
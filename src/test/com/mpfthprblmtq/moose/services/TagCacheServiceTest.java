@@ -0,0 +1,75 @@
+package com.mpfthprblmtq.moose.services;
+
+import com.mpfthprblmtq.moose.objects.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagCacheServiceTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testGet_whenFileUnchanged_returnsCachedSong() throws Exception {
+        File file = createFile("01 Title.mp3");
+        TagCacheService underTest = new TagCacheService(tempDir.getPath() + "/");
+        Song cachedSong = Song.builder().file(file).title("Title").genre("Genre").build();
+        cachedSong.setArtwork_bytes(new byte[]{1, 2, 3});
+        underTest.put(cachedSong);
+
+        Song song = underTest.get(file);
+        assertNotNull(song);
+        assertEquals("Title", song.getTitle());
+        assertEquals("Genre", song.getGenre());
+        assertEquals(cachedSong.getArtworkHash(), song.getArtworkHash());
+        assertArrayEquals(new byte[]{1, 2, 3}, song.getArtwork_bytes());
+    }
+
+    @Test
+    public void testGet_whenSavedArtworkNotInStore_returnsNull() throws Exception {
+        File file = createFile("01 Title.mp3");
+        TagCacheService underTest = new TagCacheService(tempDir.getPath() + "/");
+        Song savedSong = Song.builder().file(file).title("Title").build();
+        savedSong.setArtwork_bytes(new byte[]{4, 5, 6, 7});
+        underTest.put(savedSong);
+
+        // once nothing references the artwork it's gone from the store, so the file has to be read again
+        savedSong.setArtwork_bytes(null);
+        assertNull(underTest.get(file));
+    }
+
+    @Test
+    public void testGet_whenFileChanged_returnsNull() throws Exception {
+        File file = createFile("01 Title.mp3");
+        TagCacheService underTest = new TagCacheService(tempDir.getPath() + "/");
+        underTest.put(Song.builder().file(file).title("Title").build());
+
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5});
+        assertNull(underTest.get(file));
+    }
+
+    @Test
+    public void testReadCacheFile_afterWrite_returnsCachedSong() throws Exception {
+        File file = createFile("01 Title.mp3");
+        TagCacheService writer = new TagCacheService(tempDir.getPath() + "/");
+        writer.put(Song.builder().file(file).title("Title").build());
+        assertTrue(writer.writeCacheFile());
+
+        TagCacheService reader = new TagCacheService(tempDir.getPath() + "/");
+        reader.readCacheFile();
+        Song song = reader.get(file);
+        assertNotNull(song);
+        assertEquals("Title", song.getTitle());
+    }
+
+    private File createFile(String name) throws Exception {
+        File file = new File(tempDir, name);
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        return file;
+    }
+}
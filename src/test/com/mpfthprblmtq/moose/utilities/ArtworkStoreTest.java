@@ -0,0 +1,76 @@
+package com.mpfthprblmtq.moose.utilities;
+
+import com.mpfthprblmtq.moose.objects.ArtworkLocation;
+import com.mpfthprblmtq.moose.objects.Song;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtworkStoreTest {
+
+    @TempDir
+    File tempDir;
+
+    @AfterEach
+    public void tearDown() {
+        ArtworkStore.setSpillDirectory(null);
+        ArtworkStore.setSpillThreshold(ArtworkStore.DEFAULT_SPILL_THRESHOLD);
+    }
+
+    @Test
+    public void testSetArtwork_whenSongsShareArtwork_storesOneCopy() {
+        int before = ArtworkStore.getDistinctCount();
+        Song first = new Song();
+        Song second = new Song();
+        first.setArtwork_bytes(new byte[]{1, 2, 3, 4});
+        second.setArtwork_bytes(new byte[]{1, 2, 3, 4});
+
+        assertEquals(before + 1, ArtworkStore.getDistinctCount());
+        assertSame(first.getArtwork_bytes(), second.getArtwork_bytes());
+        assertEquals(first.getArtworkHash(), second.getArtworkHash());
+
+        // the artwork stays until the last song lets go of it
+        first.setArtwork_bytes(null);
+        assertEquals(before + 1, ArtworkStore.getDistinctCount());
+        second.setArtwork_bytes(null);
+        assertEquals(before, ArtworkStore.getDistinctCount());
+        assertNull(second.getArtwork_bytes());
+    }
+
+    @Test
+    public void testHasSameArtwork_whenNotRead_comparesLocations() {
+        // the file doesn't exist, so this only passes if the artwork isn't read
+        File file = new File(tempDir, "missing.mp3");
+        Song first = Song.builder().file(file).artworkLocation(new ArtworkLocation(20, 100, "image/jpeg")).build();
+        Song second = Song.builder().file(file).artworkLocation(new ArtworkLocation(20, 100, "image/jpeg")).build();
+        Song moved = Song.builder().file(file).artworkLocation(new ArtworkLocation(40, 100, "image/jpeg")).build();
+        Song noArtwork = Song.builder().file(file).build();
+
+        assertTrue(first.hasSameArtwork(second));
+        assertTrue(first.equals(second, false));
+        assertFalse(first.hasSameArtwork(moved));
+        assertFalse(first.hasSameArtwork(noArtwork));
+        assertTrue(noArtwork.hasSameArtwork(Song.builder().file(file).build()));
+    }
+
+    @Test
+    public void testSetArtwork_whenOverSpillThreshold_spillsToDisk() {
+        ArtworkStore.setSpillDirectory(tempDir);
+        ArtworkStore.setSpillThreshold(0);
+        byte[] bytes = new byte[4096];
+        bytes[0] = 42;
+
+        Song song = new Song();
+        song.setArtwork_bytes(bytes);
+        assertEquals(0, ArtworkStore.getBytesInMemory());
+        assertArrayEquals(bytes, song.getArtwork_bytes());
+        assertEquals(1, tempDir.listFiles().length);
+
+        song.setArtwork_bytes(null);
+        assertEquals(0, tempDir.listFiles().length);
+    }
+}
@@ -0,0 +1,171 @@
+package com.mpfthprblmtq.moose.utilities;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageUtilsTest {
+
+    // mean difference per channel (out of 255) allowed against getScaledInstance(SCALE_SMOOTH)
+    private static final double QUALITY_TOLERANCE = 3.0;
+
+    @BeforeEach
+    public void setUp() {
+        ImageUtils.clearThumbnailCache();
+    }
+
+    @Test
+    public void testGetScaledImage_whenSameArtRequestedTwice_hitsCache() {
+        byte[] bytes = getImageBytes(400, 400);
+
+        Icon first = ImageUtils.getScaledImage(bytes, 100);
+        Icon second = ImageUtils.getScaledImage(bytes.clone(), 100);
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(100, first.getIconWidth());
+        assertEquals(1, ImageUtils.getThumbnailCacheMisses());
+        assertEquals(1, ImageUtils.getThumbnailCacheHits());
+    }
+
+    @Test
+    public void testGetScaledImage_whenHashIsKnown_sharesCacheWithBytes() {
+        byte[] bytes = getImageBytes(400, 400);
+        ArtworkStore.Handle handle = ArtworkStore.put(bytes);
+        try {
+            Icon first = ImageUtils.getScaledImage(bytes, 100);
+            Icon second = ImageUtils.getScaledImage(bytes, handle.getHash(), 100);
+            assertSame(first, second);
+            assertEquals(1, ImageUtils.getThumbnailCacheMisses());
+            assertEquals(1, ImageUtils.getThumbnailCacheHits());
+        } finally {
+            handle.release();
+        }
+    }
+
+    @Test
+    public void testGetScaledImage_whenDifferentDimension_missesCache() {
+        byte[] bytes = getImageBytes(400, 300);
+
+        assertEquals(100, ImageUtils.getScaledImage(bytes, 100).getIconWidth());
+        assertEquals(150, ImageUtils.getScaledImage(bytes, 150).getIconWidth());
+        assertEquals(2, ImageUtils.getThumbnailCacheMisses());
+        assertEquals(0, ImageUtils.getThumbnailCacheHits());
+    }
+
+    @Test
+    public void testGetScaledImage_whenNoBytes_returnsNull() {
+        assertNull(ImageUtils.getScaledImage(null, 100));
+        assertNull(ImageUtils.getScaledImage(new byte[]{}, 100));
+    }
+
+    @Test
+    public void testGetThumbnailImageFromBytes_whenImageIsLarge_decodesSubsampledSquare() {
+        byte[] bytes = getImageBytes(3000, 2000);
+
+        BufferedImage thumbnail = ImageUtils.getThumbnailImageFromBytes(bytes, 100);
+        assertNotNull(thumbnail);
+        assertEquals(thumbnail.getWidth(), thumbnail.getHeight());
+        assertTrue(thumbnail.getWidth() >= 200 && thumbnail.getWidth() < 400);
+
+        // the crop is centered, so the left half is red and the right half is blue
+        Color left = new Color(thumbnail.getRGB(thumbnail.getWidth() / 4, thumbnail.getHeight() / 2));
+        Color right = new Color(thumbnail.getRGB(thumbnail.getWidth() * 3 / 4, thumbnail.getHeight() / 2));
+        assertTrue(left.getRed() > 200 && left.getBlue() < 50);
+        assertTrue(right.getBlue() > 200 && right.getRed() < 50);
+    }
+
+    @Test
+    public void testGetThumbnailImageFromBytes_whenImageIsSmall_decodesFullSquare() {
+        byte[] bytes = getImageBytes(150, 120);
+
+        BufferedImage thumbnail = ImageUtils.getThumbnailImageFromBytes(bytes, 100);
+        assertNotNull(thumbnail);
+        assertEquals(120, thumbnail.getWidth());
+        assertEquals(120, thumbnail.getHeight());
+    }
+
+    @Test
+    public void testResize_3000to640_matchesScaledInstanceWithinTolerance() {
+        BufferedImage image = getTestImage(3000);
+        BufferedImage resized = ImageUtils.resize(image, 640);
+        assertEquals(640, resized.getWidth());
+        assertEquals(640, resized.getHeight());
+        assertTrue(getMeanDifference(getScaledInstance(image, 640), resized) < QUALITY_TOLERANCE);
+    }
+
+    @Test
+    public void testResize_1400to100_matchesScaledInstanceWithinTolerance() {
+        BufferedImage image = getTestImage(1400);
+        BufferedImage resized = ImageUtils.resize(image, 100);
+        assertEquals(100, resized.getWidth());
+        assertTrue(getMeanDifference(getScaledInstance(image, 100), resized) < QUALITY_TOLERANCE);
+    }
+
+    @Test
+    public void testResizeLanczos_matchesScaledInstanceWithinTolerance() {
+        BufferedImage image = getTestImage(1400);
+        BufferedImage resized = ImageUtils.resizeLanczos(image, 640, 640);
+        assertEquals(640, resized.getWidth());
+        assertEquals(640, resized.getHeight());
+        assertTrue(getMeanDifference(getScaledInstance(image, 640), resized) < QUALITY_TOLERANCE);
+    }
+
+    /**
+     * The old resize, area averaging through getScaledInstance, as the quality reference
+     */
+    private BufferedImage getScaledInstance(BufferedImage image, int dim) {
+        Image tmp = image.getScaledInstance(dim, dim, Image.SCALE_SMOOTH);
+        BufferedImage resized = new BufferedImage(dim, dim, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = resized.createGraphics();
+        g2d.drawImage(tmp, 0, 0, null);
+        g2d.dispose();
+        return resized;
+    }
+
+    private double getMeanDifference(BufferedImage expected, BufferedImage actual) {
+        long total = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    total += Math.abs(((e >> shift) & 0xFF) - ((a >> shift) & 0xFF));
+                }
+            }
+        }
+        return total / (expected.getWidth() * expected.getHeight() * 3.0);
+    }
+
+    /**
+     * Builds a cover-like test image with gradients, flat areas and some hard edges
+     */
+    private BufferedImage getTestImage(int dim) {
+        BufferedImage image = new BufferedImage(dim, dim, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.ORANGE, dim, dim, Color.MAGENTA));
+        g2d.fillRect(0, 0, dim, dim);
+        g2d.setColor(Color.WHITE);
+        g2d.fillOval(dim / 4, dim / 4, dim / 2, dim / 2);
+        g2d.setColor(Color.BLACK);
+        g2d.setStroke(new BasicStroke(dim / 100f));
+        g2d.drawRect(dim / 10, dim / 10, dim * 8 / 10, dim * 8 / 10);
+        g2d.dispose();
+        return image;
+    }
+
+    private byte[] getImageBytes(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.RED);
+        g2d.fillRect(0, 0, width / 2, height);
+        g2d.setColor(Color.BLUE);
+        g2d.fillRect(width / 2, 0, width / 2, height);
+        g2d.dispose();
+        return ImageUtils.getBytesFromBufferedImage(image);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mpfthprblmtq.moose.utilities;
+
+import com.mpatric.mp3agic.ID3v24Tag;
+import com.mpfthprblmtq.moose.Moose;
+import com.mpfthprblmtq.moose.controllers.SongController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MP3FileUtilsTest {
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        Moose.songController = new SongController();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Moose.songController = null;
+    }
+
+    @Test
+    public void testGetCoverIfExists_whenAlbumHasNoArtwork_returnsNull() throws Exception {
+        File album = new File(tempDir, "Artist/[2020] Album");
+        Files.createDirectories(album.toPath());
+        createFile(new File(album, "01 Title.mp3"));
+        createFile(new File(album, "02 Title.mp3"));
+
+        assertNull(MP3FileUtils.getCoverIfExists(album));
+    }
+
+    private void createFile(File file) throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(tag.toBytes());
+            for (int i = 0; i < 20; i++) {
+                // empty MPEG 1 layer III, 128 kbps, 44.1 kHz frames
+                byte[] frame = new byte[417];
+                frame[0] = (byte) 0xFF;
+                frame[1] = (byte) 0xFB;
+                frame[2] = (byte) 0x90;
+                out.write(frame);
+            }
+        }
+    }
+}
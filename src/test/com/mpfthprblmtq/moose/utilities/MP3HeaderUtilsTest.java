@@ -0,0 +1,259 @@
+package com.mpfthprblmtq.moose.utilities;
+
+import com.mpatric.mp3agic.ID3v2;
+import com.mpatric.mp3agic.ID3v24Tag;
+import com.mpatric.mp3agic.Mp3File;
+import com.mpfthprblmtq.moose.objects.ArtworkLocation;
+import com.mpfthprblmtq.moose.objects.AudioInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MP3HeaderUtilsTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testReadID3v2Tag_whenFileHasTag_returnsTagFields() throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        tag.setArtist("Artist");
+        tag.setAlbum("Album");
+        tag.setTrack("1/12");
+        tag.setRecordingTime("2023");
+        tag.setAlbumImage(new byte[]{1, 2, 3, 4}, "image/jpeg");
+        File file = writeFile("tagged.mp3", tag.toBytes(), new byte[4096]);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ID3v2 result = MP3HeaderUtils.readID3v2Tag(channel);
+            assertNotNull(result);
+            assertEquals("Title", result.getTitle());
+            assertEquals("Artist", result.getArtist());
+            assertEquals("Album", result.getAlbum());
+            assertEquals("1/12", result.getTrack());
+            assertEquals("2023", ((ID3v24Tag) result).getRecordingTime());
+            assertArrayEquals(new byte[]{1, 2, 3, 4}, result.getAlbumImage());
+        }
+    }
+
+    @Test
+    public void testReadID3v2TagRegion_whenFileHasTag_readsOnlyTheTag() throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        byte[] tagBytes = tag.toBytes();
+        File file = writeFile("region.mp3", tagBytes, new byte[4096]);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            byte[] region = MP3HeaderUtils.readID3v2TagRegion(channel);
+            assertNotNull(region);
+            assertEquals(tagBytes.length, region.length);
+            assertEquals(tagBytes.length, MP3HeaderUtils.getID3v2TagLength(region));
+        }
+    }
+
+    @Test
+    public void testReadID3v2Tag_whenFileHasNoTag_returnsNull() throws Exception {
+        File file = writeFile("untagged.mp3", new byte[4096]);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertNull(MP3HeaderUtils.readID3v2Tag(channel));
+        }
+    }
+
+    @Test
+    public void testReadID3v2TagWithoutArtwork_recordsArtworkLocation() throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        tag.setAlbumImage(new byte[16 * 1024], "image/png");
+        tag.setArtist("Artist");
+        tag.setPadding(true);
+        File file = writeFile("lazy.mp3", tag.toBytes(), new byte[4096]);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MP3HeaderUtils.TagWithoutArtwork result = MP3HeaderUtils.readID3v2TagWithoutArtwork(channel);
+            assertNotNull(result);
+            assertEquals("Title", result.getTag().getTitle());
+            assertEquals("Artist", result.getTag().getArtist());
+            assertNull(result.getTag().getAlbumImage());
+            assertNotNull(result.getArtworkLocation());
+            assertEquals("image/png", result.getArtworkLocation().getMimeType());
+            assertArrayEquals(new byte[16 * 1024], MP3HeaderUtils.readArtwork(channel, result.getArtworkLocation()));
+        }
+    }
+
+    @Test
+    public void testReadArtwork_whenTagRewritten_readsArtworkFromNewTag() throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        tag.setAlbumImage(new byte[]{1, 2, 3, 4}, "image/jpeg");
+        File file = writeFile("moved.mp3", tag.toBytes(), new byte[4096]);
+
+        ArtworkLocation location;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            location = MP3HeaderUtils.readID3v2TagWithoutArtwork(channel).getArtworkLocation();
+        }
+        tag.clearAlbumImage();
+        tag.setAlbumImage(new byte[]{5, 6, 7, 8, 9}, "image/jpeg");
+        MP3HeaderUtils.writeID3v2Tag(file, tag, 0);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertArrayEquals(new byte[]{5, 6, 7, 8, 9}, MP3HeaderUtils.readArtwork(channel, location));
+        }
+    }
+
+    @Test
+    public void testReadAudioInfo_whenFileIsCbr_matchesFullScan() throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        for (int i = 0; i < 2000; i++) {
+            audio.write(getFrame(9));   // 128 kbps
+        }
+        File file = writeFile("cbr.mp3", tag.toBytes(), audio.toByteArray());
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            AudioInfo audioInfo = MP3HeaderUtils.readAudioInfo(channel);
+            Mp3File mp3File = new Mp3File(file);
+            assertNotNull(audioInfo);
+            assertEquals(mp3File.getBitrate(), audioInfo.getBitrate());
+            assertEquals(mp3File.getSampleRate(), audioInfo.getSampleRate());
+            assertEquals(mp3File.getLengthInSeconds(), audioInfo.getLengthInSeconds());
+        }
+    }
+
+    @Test
+    public void testReadAudioInfo_whenFileIsVbrWithXingHeader_matchesFullScan() throws Exception {
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        int frameCount = 3000;
+        long audioBytes = 0;
+        for (int i = 0; i < frameCount; i++) {
+            byte[] frame = getFrame(i % 3 == 0 ? 11 : 9);   // mix of 192 and 128 kbps
+            audio.write(frame);
+            audioBytes += frame.length;
+        }
+
+        // xing frame with the frame count and byte count
+        byte[] xingFrame = getFrame(9);
+        ByteBuffer xing = ByteBuffer.wrap(xingFrame, 4 + 32, 16);
+        xing.put("Xing".getBytes()).putInt(0x03).putInt(frameCount).putInt((int) audioBytes + xingFrame.length);
+        File file = writeFile("vbr.mp3", xingFrame, audio.toByteArray());
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            AudioInfo audioInfo = MP3HeaderUtils.readAudioInfo(channel);
+            Mp3File mp3File = new Mp3File(file);
+            assertNotNull(audioInfo);
+            assertEquals(mp3File.getSampleRate(), audioInfo.getSampleRate());
+            assertEquals(mp3File.getLengthInSeconds(), audioInfo.getLengthInSeconds(), 1);
+            assertEquals(mp3File.getBitrate(), audioInfo.getBitrate(), 1);
+        }
+    }
+
+    @Test
+    public void testReadAudioInfo_whenFileIsVbrWithoutHeader_returnsNull() throws Exception {
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        for (int i = 0; i < 2000; i++) {
+            audio.write(getFrame(i < 1000 ? 9 : 11));
+        }
+        File file = writeFile("vbr_no_header.mp3", audio.toByteArray());
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertNull(MP3HeaderUtils.readAudioInfo(channel));
+        }
+    }
+
+    @Test
+    public void testReadAudioInfo_whenFileIsVbrWithoutHeaderButCbrInTheMiddle_fallsBackToFullScan() throws Exception {
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        for (int i = 0; i < 2000; i++) {
+            audio.write(getFrame(i >= 500 && i < 800 ? 11 : 9));
+        }
+        File file = writeFile("vbr_no_header_cbr_middle.mp3", audio.toByteArray());
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the first frame and the middle of the file agree, but the full scan doesn't
+            Mp3File mp3File = new Mp3File(file);
+            assertNotEquals(128, mp3File.getBitrate());
+            assertNull(MP3HeaderUtils.readAudioInfo(channel));
+        }
+    }
+
+    @Test
+    public void testWriteID3v2Tag_whenTagFitsInPadding_overwritesTagInPlace() throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        tag.setPadding(true);
+        byte[] tagBytes = tag.toBytes();
+        byte[] audio = getFrame(9);
+        File file = writeFile("in_place.mp3", tagBytes, audio);
+
+        ID3v24Tag newTag = new ID3v24Tag();
+        newTag.setTitle("New Title");
+        assertTrue(MP3HeaderUtils.writeID3v2Tag(file, newTag, 1024));
+        assertEquals(tagBytes.length + audio.length, file.length());
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertEquals("New Title", MP3HeaderUtils.readID3v2Tag(channel).getTitle());
+            ByteBuffer audioBuffer = ByteBuffer.allocate(audio.length);
+            MP3HeaderUtils.readFully(channel, audioBuffer, tagBytes.length);
+            assertArrayEquals(audio, audioBuffer.array());
+        }
+    }
+
+    @Test
+    public void testWriteID3v2Tag_whenTagGrows_copiesFileWithPaddingReserve() throws Exception {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setTitle("Title");
+        byte[] tagBytes = tag.toBytes();
+        byte[] audio = getFrame(9);
+        File file = writeFile("grown.mp3", tagBytes, audio);
+
+        ID3v24Tag newTag = new ID3v24Tag();
+        newTag.setTitle("Title");
+        newTag.setAlbumImage(new byte[2048], "image/jpeg");
+        assertFalse(MP3HeaderUtils.writeID3v2Tag(file, newTag, 1024));
+        assertFalse(new File(tempDir, "grown_.mp3").exists());
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            byte[] region = MP3HeaderUtils.readID3v2TagRegion(channel);
+            assertNotNull(region);
+            assertEquals(newTag.toBytes().length + 1024, region.length);
+            assertEquals(2048, MP3HeaderUtils.readID3v2Tag(channel).getAlbumImage().length);
+            ByteBuffer audioBuffer = ByteBuffer.allocate(audio.length);
+            MP3HeaderUtils.readFully(channel, audioBuffer, region.length);
+            assertArrayEquals(audio, audioBuffer.array());
+            assertEquals(region.length + audio.length, channel.size());
+        }
+    }
+
+    /**
+     * Builds an empty MPEG 1 layer III, 44.1 kHz, stereo frame with the given bitrate index
+     */
+    private byte[] getFrame(int bitrateIndex) {
+        int bitrate = bitrateIndex == 9 ? 128000 : 192000;
+        byte[] frame = new byte[144 * bitrate / 44100];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xFB;
+        frame[2] = (byte) (bitrateIndex << 4);
+        frame[3] = 0x00;
+        return frame;
+    }
+
+    private File writeFile(String name, byte[]... parts) throws Exception {
+        File file = new File(tempDir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        }
+        return file;
+    }
+}
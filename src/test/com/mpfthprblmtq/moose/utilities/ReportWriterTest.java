@@ -0,0 +1,46 @@
+package com.mpfthprblmtq.moose.utilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportWriterTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testWriteReport_writesEachFormat() throws Exception {
+        Map<String, List<String>> sections = new LinkedHashMap<>();
+        sections.put("FLAC FILES", Arrays.asList("/Music/a.flac", "/Music/b, \"live\".flac"));
+        sections.put("ZIP FILES", Collections.emptyList());
+
+        File text = new File(tempDir, "reports/results.txt");
+        ReportWriter.writeReport(text, ReportWriter.Format.TEXT, sections);
+        assertEquals("\n FLAC FILES:\n \t/Music/a.flac \n \t/Music/b, \"live\".flac \n\n ZIP FILES:\n\n",
+                Files.readString(text.toPath()));
+
+        File csv = new File(tempDir, "reports/results.csv");
+        ReportWriter.writeReport(csv, ReportWriter.Format.CSV, sections);
+        assertEquals("section,path\nFLAC FILES,/Music/a.flac\nFLAC FILES,\"/Music/b, \"\"live\"\".flac\"\n",
+                Files.readString(csv.toPath()));
+
+        File json = new File(tempDir, "reports/results.json");
+        ReportWriter.writeReport(json, ReportWriter.Format.JSON, sections);
+        JsonNode node = new ObjectMapper().readTree(json);
+        assertEquals("/Music/b, \"live\".flac", node.get("FLAC FILES").get(1).asText());
+        assertEquals(0, node.get("ZIP FILES").size());
+        assertFalse(new File(tempDir, "reports/results.json.tmp").exists());
+    }
+}
@@ -0,0 +1,56 @@
+package com.mpfthprblmtq.moose.utilities.viewUtils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongTableModelTest {
+
+    SongTableModel underTest = new SongTableModel();
+
+    @BeforeEach
+    public void setUp() {
+        underTest.setColumnCount(SongTableModel.INDEX_COLUMN + 1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(getRow(i));
+        }
+        underTest.addRows(rows);
+    }
+
+    @Test
+    public void testRemoveRows_updatesModelRows() {
+        underTest.removeRows(new int[]{7, 2, 3});
+        assertEquals(7, underTest.getRowCount());
+        assertEquals(-1, underTest.getModelRow(2));
+        assertEquals(-1, underTest.getModelRow(7));
+        assertEquals(1, underTest.getModelRow(1));
+        assertEquals(2, underTest.getModelRow(4));
+        assertEquals(6, underTest.getModelRow(9));
+    }
+
+    @Test
+    public void testRemoveAndInsertRow_shiftsModelRows() {
+        underTest.removeRow(0);
+        assertEquals(-1, underTest.getModelRow(0));
+        assertEquals(0, underTest.getModelRow(1));
+
+        underTest.insertRow(4, getRow(20));
+        assertEquals(4, underTest.getModelRow(20));
+        assertEquals(3, underTest.getModelRow(4));
+        assertEquals(5, underTest.getModelRow(5));
+
+        underTest.setRowCount(0);
+        assertEquals(-1, underTest.getModelRow(5));
+    }
+
+    private Object[] getRow(int index) {
+        Object[] row = new Object[SongTableModel.INDEX_COLUMN + 1];
+        row[SongTableModel.INDEX_COLUMN] = index;
+        return row;
+    }
+}